@@ -0,0 +1,146 @@
+package kirill.subtitlemerger.logic.subtitles;
+
+import kirill.subtitlemerger.logic.LogicConstants;
+import lombok.AllArgsConstructor;
+import org.apache.commons.lang3.ArrayUtils;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Generated texts the benchmarks work with. They are generated instead of being stored in the repository because one
+ * of them has to be as large as the biggest subtitle file allowed and because the texts have to be reproducible so that
+ * the results of different runs can be compared.
+ */
+@AllArgsConstructor
+public enum BenchmarkCorpus {
+    /**
+     * A typical subtitle file for an episode of a TV series.
+     */
+    SMALL(500, 2_500, 3_000),
+
+    /**
+     * Subtitles that take as much space as the biggest subtitle file allowed to be loaded.
+     */
+    LARGE(-1, 600, 500),
+
+    /**
+     * Subtitles where every subtitle overlaps dozens of others, which is the worst case for the merger.
+     */
+    OVERLAPPING(5_000, 10_000, 300);
+
+    private static final String[] CYRILLIC_WORDS = {
+            "что", "это", "мы", "не", "можем", "оставить", "его", "здесь", "почему", "ты", "вернулся", "давай",
+            "быстрее", "объяснишь", "щёлкнуть", "съешь", "ещё", "этих", "мягких", "булок"
+    };
+
+    private static final String[] ALL_WORDS = ArrayUtils.addAll(
+            new String[]{
+                    "the", "of", "and", "you", "what", "just", "because", "we", "can't", "leave", "behind", "have",
+                    "lost", "mind", "got", "away", "reason", "turn", "around", "über", "straße", "façade", "déjà", "vu"
+            },
+            CYRILLIC_WORDS
+    );
+
+    /**
+     * Number of subtitles to generate, -1 means that subtitles are generated until the text reaches the size limit.
+     */
+    private int subtitleCount;
+
+    private int durationMillis;
+
+    private int intervalMillis;
+
+    /**
+     * Returns the text of the subtitles, the seed lets generating different subtitles of the same kind, for example for
+     * the upper and the lower subtitles to merge. The text is made only of the words that can be stored in the given
+     * encoding - all the words for UTF-8 and only the Cyrillic ones for the other (single-byte Cyrillic) encodings,
+     * otherwise the encoding would replace some of the characters with question marks.
+     */
+    public String generateText(long seed, Charset encoding) {
+        String[] words = encoding.equals(StandardCharsets.UTF_8) ? ALL_WORDS : CYRILLIC_WORDS;
+
+        Random random = new Random(seed);
+        long sizeLimit = LogicConstants.INPUT_SUBTITLE_FILE_LIMIT_MEGABYTES * 1024 * 1024L;
+        int maxMillis = 24 * 60 * 60 * 1000 - 1;
+
+        StringBuilder result = new StringBuilder();
+        long size = 0;
+        int from = random.nextInt(intervalMillis);
+        for (int i = 0; subtitleCount == -1 || i < subtitleCount; i++) {
+            int to = Math.min(from + durationMillis, maxMillis);
+            if (from >= to) {
+                break;
+            }
+
+            StringBuilder subtitle = new StringBuilder();
+            if (i != 0) {
+                subtitle.append("\n\n");
+            }
+            subtitle.append(i + 1).append("\n");
+            appendTime(from, subtitle);
+            subtitle.append(" --> ");
+            appendTime(to, subtitle);
+            subtitle.append("\n");
+            appendLines(random, words, subtitle);
+
+            size += subtitle.toString().getBytes(StandardCharsets.UTF_8).length;
+            if (subtitleCount == -1 && size > sizeLimit) {
+                break;
+            }
+            result.append(subtitle);
+
+            from += intervalMillis / 2 + random.nextInt(intervalMillis);
+        }
+
+        return result.toString();
+    }
+
+    private static void appendTime(int millis, StringBuilder builder) {
+        builder.append(String.format(
+                "%02d:%02d:%02d,%03d",
+                millis / (60 * 60 * 1000),
+                millis / (60 * 1000) % 60,
+                millis / 1000 % 60,
+                millis % 1000
+        ));
+    }
+
+    /*
+     * Lines contain html and SubStation Alpha tags from time to time so that the plain text mode has some work to do.
+     */
+    private static void appendLines(Random random, String[] words, StringBuilder builder) {
+        int lineCount = 1 + random.nextInt(2);
+        for (int i = 0; i < lineCount; i++) {
+            if (i != 0) {
+                builder.append("\n");
+            }
+
+            int tagType = random.nextInt(10);
+            if (tagType == 0) {
+                builder.append("<i>");
+            } else if (tagType == 1) {
+                builder.append("{\\an8}");
+            } else if (tagType == 2) {
+                builder.append("<font color=\"#ffff00\">");
+            }
+
+            builder.append("- ");
+            int wordCount = 3 + random.nextInt(8);
+            for (int j = 0; j < wordCount; j++) {
+                if (j != 0) {
+                    builder.append(" ");
+                }
+                builder.append(words[random.nextInt(words.length)]);
+            }
+            builder.append(random.nextBoolean() ? "." : "!");
+
+            if (tagType == 0) {
+                builder.append("</i>");
+            } else if (tagType == 2) {
+                builder.append("</font>");
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package kirill.subtitlemerger.logic.subtitles;
+
+import kirill.subtitlemerger.logic.subtitles.entities.SubtitleFormatException;
+import kirill.subtitlemerger.logic.subtitles.entities.Subtitles;
+import kirill.subtitlemerger.logic.subtitles.entities.SubtitlesAndInput;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the main operations with subtitles. The benchmarks that work with raw data get it from the RawData
+ * state, so only they are run for each encoding - both for UTF-8 and for a single-byte encoding which is common for
+ * subtitle files.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SubtitleBenchmarks {
+    @Param({"SMALL", "LARGE", "OVERLAPPING"})
+    private BenchmarkCorpus corpus;
+
+    private Subtitles upperSubtitles;
+
+    private Subtitles lowerSubtitles;
+
+    private Subtitles mergedSubtitles;
+
+    @Setup
+    public void setup() throws SubtitleFormatException, InterruptedException {
+        upperSubtitles = SubRipParser.from(corpus.generateText(1, StandardCharsets.UTF_8));
+        lowerSubtitles = SubRipParser.from(corpus.generateText(2, StandardCharsets.UTF_8));
+        mergedSubtitles = SubtitleMerger.mergeSubtitles(upperSubtitles, lowerSubtitles);
+    }
+
+    @Benchmark
+    public Subtitles parse(RawData rawData) throws SubtitleFormatException {
+        return SubRipParser.from(rawData.data, rawData.charset);
+    }
+
+    @Benchmark
+    public Subtitles merge() throws InterruptedException {
+        return SubtitleMerger.mergeSubtitles(upperSubtitles, lowerSubtitles);
+    }
+
+    @Benchmark
+    public String toText() {
+        return SubRipWriter.toText(mergedSubtitles, false);
+    }
+
+    @Benchmark
+    public String toPlainText() {
+        return SubRipWriter.toText(mergedSubtitles, true);
+    }
+
+    @Benchmark
+    public SubtitlesAndInput changeEncoding(RawData rawData) {
+        return rawData.subtitlesAndInput.changeEncoding(rawData.charset);
+    }
+
+    @State(Scope.Benchmark)
+    public static class RawData {
+        @Param({"SMALL", "LARGE", "OVERLAPPING"})
+        private BenchmarkCorpus corpus;
+
+        /*
+         * The encoding the raw data is stored in.
+         */
+        @Param({"UTF-8", "windows-1251"})
+        private String encoding;
+
+        private Charset charset;
+
+        private byte[] data;
+
+        /*
+         * When the user loads a file the encoding is unknown, so it's UTF-8 by default and the user changes it
+         * afterwards.
+         */
+        private SubtitlesAndInput subtitlesAndInput;
+
+        @Setup
+        public void setup() {
+            charset = Charset.forName(encoding);
+            data = corpus.generateText(1, charset).getBytes(charset);
+            subtitlesAndInput = SubtitlesAndInput.from(data, StandardCharsets.UTF_8);
+        }
+    }
+}
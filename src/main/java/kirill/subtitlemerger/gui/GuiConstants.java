@@ -20,7 +20,12 @@ public class GuiConstants {
 
     public static final FileChooser.ExtensionFilter SUBTITLE_EXTENSION_FILTER = getSubtitleExtensionFilter();
 
-    public static final int VIDEO_TABLE_LIMIT = 10_000;
+    /**
+     * The maximum number of ffprobe processes that are run at the same time to get video info. Ffprobe spends most of
+     * its time waiting for the disk (or the network for remote directories) so the number may exceed the number of
+     * cores.
+     */
+    public static final int VIDEO_INFO_THREAD_COUNT = 8;
 
     public static final FileChooser.ExtensionFilter VIDEO_EXTENSION_FILTER = new FileChooser.ExtensionFilter(
             "mkv files (*.mkv)", "*.mkv"
@@ -4,11 +4,17 @@ import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableSet;
+import kirill.subtitlemerger.logic.LogicConstants;
 import kirill.subtitlemerger.logic.ffmpeg.Ffmpeg;
 import kirill.subtitlemerger.logic.ffmpeg.FfmpegException;
 import kirill.subtitlemerger.logic.ffmpeg.Ffprobe;
 import kirill.subtitlemerger.logic.settings.SettingType;
 import kirill.subtitlemerger.logic.settings.Settings;
+import kirill.subtitlemerger.logic.utils.process.ProcessRunner;
+import kirill.subtitlemerger.logic.videos.MergeManifest;
+import kirill.subtitlemerger.logic.videos.ProcessedSubtitleCache;
+import kirill.subtitlemerger.logic.videos.SubtitleCache;
+import kirill.subtitlemerger.logic.videos.VideoInfoCache;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
@@ -38,17 +44,44 @@ public class GuiContext {
 
     private Settings settings;
 
+    private SubtitleCache subtitleCache;
+
+    private VideoInfoCache videoInfoCache;
+
+    private ProcessedSubtitleCache processedSubtitleCache;
+
+    private MergeManifest mergeManifest;
+
     /**
      * Settings required for working on the videos tab.
      */
     private ObservableSet<SettingType> missingSettings;
 
     public GuiContext() {
+        settings = new Settings();
+        ProcessRunner.setMaxProcessCount(settings.getMaxProcessCount());
+
         ffprobe = getPackedFfprobe();
         ffmpeg = getPackedFfmpegFile();
         videosInProgress = new SimpleBooleanProperty(false);
 
-        settings = new Settings();
+        subtitleCache = new SubtitleCache(
+                new File(LogicConstants.CACHE_DIRECTORY, "subtitles"),
+                settings.getSubtitleCacheSizeMegabytes() * 1024 * 1024L
+        );
+        videoInfoCache = new VideoInfoCache(
+                new File(LogicConstants.CACHE_DIRECTORY, "video_info"),
+                LogicConstants.VIDEO_INFO_CACHE_SIZE
+        );
+        processedSubtitleCache = new ProcessedSubtitleCache(
+                LogicConstants.PROCESSED_SUBTITLE_MEMORY_CACHE_SIZE,
+                new File(LogicConstants.CACHE_DIRECTORY, "processed_subtitles"),
+                LogicConstants.PROCESSED_SUBTITLE_DISK_CACHE_SIZE
+        );
+        mergeManifest = new MergeManifest(
+                new File(LogicConstants.CACHE_DIRECTORY, "merge_manifest"),
+                LogicConstants.MERGE_MANIFEST_SIZE
+        );
         missingSettings = getMissingSettings(settings);
     }
 
@@ -39,6 +39,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -726,16 +727,12 @@ public class SubtitleFilesFormController extends BackgroundTaskFormController {
                 }
             }
 
-            try {
-                backgroundManager.setCancelPossible(false);
-                backgroundManager.setIndeterminateProgress();
-                backgroundManager.updateMessage("Writing the result...");
+            backgroundManager.setCancelPossible(false);
+            backgroundManager.setIndeterminateProgress();
+            backgroundManager.updateMessage("Writing the result...");
 
-                FileUtils.writeStringToFile(
-                        mergedSubtitlesFileInfo.getFile(),
-                        SubRipWriter.toText(mergedSubtitles, settings.isPlainTextSubtitles()),
-                        StandardCharsets.UTF_8
-                );
+            try (OutputStream outputStream = FileUtils.openOutputStream(mergedSubtitlesFileInfo.getFile())) {
+                SubRipWriter.write(mergedSubtitles, settings.isPlainTextSubtitles(), outputStream);
 
                 return ActionResult.success("The subtitles have been merged successfully!");
             } catch (IOException e) {
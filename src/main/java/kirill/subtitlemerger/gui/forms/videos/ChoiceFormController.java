@@ -38,9 +38,9 @@ public class ChoiceFormController {
             return;
         }
 
-        if (videoFiles.size() > GuiConstants.VIDEO_TABLE_LIMIT) {
-            String message = "Unfortunately, it's impossible to add more than " +  GuiConstants.VIDEO_TABLE_LIMIT + " "
-                    + "videos";
+        int limit = settings.getVideoTableLimit();
+        if (videoFiles.size() > limit) {
+            String message = "Unfortunately, it's impossible to add more than " + limit + " videos";
             Popups.showError(message, stage);
             return;
         }
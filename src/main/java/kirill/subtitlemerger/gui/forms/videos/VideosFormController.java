@@ -30,6 +30,8 @@ import kirill.subtitlemerger.logic.settings.SortDirection;
 import kirill.subtitlemerger.logic.subtitles.entities.SubtitlesAndInput;
 import kirill.subtitlemerger.logic.utils.Utils;
 import kirill.subtitlemerger.logic.utils.entities.MultiPartActionResult;
+import kirill.subtitlemerger.logic.videos.SubtitleCache;
+import kirill.subtitlemerger.logic.videos.VideoInfoCache;
 import kirill.subtitlemerger.logic.videos.entities.BuiltInSubtitleOption;
 import kirill.subtitlemerger.logic.videos.entities.ExternalSubtitleOption;
 import kirill.subtitlemerger.logic.videos.entities.SubtitleOption;
@@ -64,6 +66,9 @@ public class VideosFormController extends BackgroundTaskFormController {
     @FXML
     private Button refreshButton;
 
+    @FXML
+    private CheckBox includeSubdirectoriesCheckbox;
+
     @FXML
     private MultiPartActionResultPane totalResultPane;
 
@@ -113,6 +118,10 @@ public class VideosFormController extends BackgroundTaskFormController {
 
     private Ffmpeg ffmpeg;
 
+    private SubtitleCache subtitleCache;
+
+    private VideoInfoCache videoInfoCache;
+
     private Settings settings;
 
     private String directoryPath;
@@ -140,6 +149,8 @@ public class VideosFormController extends BackgroundTaskFormController {
         this.context = context;
         ffprobe = context.getFfprobe();
         ffmpeg = context.getFfmpeg();
+        subtitleCache = context.getSubtitleCache();
+        videoInfoCache = context.getVideoInfoCache();
         settings = context.getSettings();
 
         missingSettingsFormController.initialize(this, context);
@@ -186,6 +197,7 @@ public class VideosFormController extends BackgroundTaskFormController {
     }
 
     private void setFormHandlersAndBindings() {
+        includeSubdirectoriesCheckbox.setSelected(settings.isIncludeSubdirectories());
         GuiUtils.setTextEnteredHandler(
                 chosenDirectoryField,
                 (path) -> processDirectoryPath(path, FileOrigin.TEXT_FIELD)
@@ -236,7 +248,13 @@ public class VideosFormController extends BackgroundTaskFormController {
         }
         lastProcessedVideo = null;
 
-        ProcessDirectoryRunner backgroundRunner = new ProcessDirectoryRunner(directoryPath, table, ffprobe, settings);
+        ProcessDirectoryRunner backgroundRunner = new ProcessDirectoryRunner(
+                directoryPath,
+                table,
+                ffprobe,
+                videoInfoCache,
+                settings
+        );
 
         BackgroundCallback<ProcessDirectoryRunner.Result> callback = runnerResult -> {
             if (runnerResult.getNotValidReason() != null) {
@@ -244,6 +262,8 @@ public class VideosFormController extends BackgroundTaskFormController {
                 refreshButton.setDisable(runnerResult.isDisableRefresh());
                 totalResultPane.setOnlyError(runnerResult.getNotValidReason());
                 tableAndActionsPane.setDisable(true);
+                /* The table may contain the videos that have been added before the processing stopped. */
+                table.clearTable();
 
                 allVideos = null;
                 allTableVideos = null;
@@ -385,7 +405,7 @@ public class VideosFormController extends BackgroundTaskFormController {
             backgroundManager.updateMessage(action);
             try {
                 BuiltInSubtitleOption option = video.getBuiltInOption(tableOption.getId());
-                LoadSubtitlesResult loadResult = loadSubtitles(option, video, tableOption, ffmpeg);
+                LoadSubtitlesResult loadResult = loadSubtitles(option, video, tableOption, ffmpeg, subtitleCache);
                 if (loadResult == LoadSubtitlesResult.SUCCESS) {
                     return MultiPartActionResult.onlySuccess("The subtitles have been loaded successfully");
                 } else if (loadResult == LoadSubtitlesResult.INCORRECT_FORMAT) {
@@ -429,17 +449,20 @@ public class VideosFormController extends BackgroundTaskFormController {
             int incorrectCount = 0;
             int failedCount = 0;
             try {
-                for (BuiltInSubtitleOption option : video.getOptionsToLoad()) {
-                    if (Thread.interrupted()) {
-                        throw new InterruptedException();
-                    }
-
-                    TableSubtitleOption tableOption = tableVideo.getOption(option.getId());
-
-                    String action = "Loading " + tableOption.getTitle() + " in " + video.getFile().getName() + "...";
-                    backgroundManager.updateMessage(getProgressAction(processedCount, toLoadCount, action));
+                List<BuiltInSubtitleOption> optionsToLoad = video.getOptionsToLoad();
+                if (toLoadCount != 0) {
+                    backgroundManager.updateMessage(
+                            StringUtils.capitalize(getLoadingAction(optionsToLoad, video, tableVideo))
+                    );
+                }
 
-                    LoadSubtitlesResult loadResult = loadSubtitles(option, video, tableOption, ffmpeg);
+                for (LoadSubtitlesResult loadResult : loadSubtitles(
+                        optionsToLoad,
+                        video,
+                        tableVideo,
+                        ffmpeg,
+                        subtitleCache
+                )) {
                     if (loadResult == LoadSubtitlesResult.SUCCESS) {
                         successfulCount++;
                     } else if (loadResult == LoadSubtitlesResult.INCORRECT_FORMAT) {
@@ -514,7 +537,13 @@ public class VideosFormController extends BackgroundTaskFormController {
 
         Video video = Video.getById(tableVideo.getId(), allVideos);
 
-        MergedPreviewRunner mergedPreviewRunner = new MergedPreviewRunner(video, tableVideo, ffmpeg, settings);
+        MergedPreviewRunner mergedPreviewRunner = new MergedPreviewRunner(
+                video,
+                tableVideo,
+                ffmpeg,
+                subtitleCache,
+                settings
+        );
 
         BackgroundCallback<MergedPreviewRunner.Result> callback = runnerResult -> {
             if (runnerResult == null) {
@@ -615,7 +644,13 @@ public class VideosFormController extends BackgroundTaskFormController {
 
         lastProcessedVideo = null;
 
-        ProcessDirectoryRunner backgroundRunner = new ProcessDirectoryRunner(directoryPath, table, ffprobe, settings);
+        ProcessDirectoryRunner backgroundRunner = new ProcessDirectoryRunner(
+                directoryPath,
+                table,
+                ffprobe,
+                videoInfoCache,
+                settings
+        );
 
         BackgroundCallback<ProcessDirectoryRunner.Result> callback = runnerResult -> {
             if (runnerResult.getNotValidReason() != null) {
@@ -623,6 +658,8 @@ public class VideosFormController extends BackgroundTaskFormController {
                 refreshButton.setDisable(runnerResult.isDisableRefresh());
                 totalResultPane.setOnlyError(runnerResult.getNotValidReason());
                 tableAndActionsPane.setDisable(true);
+                /* The table may contain the videos that have been added before the processing stopped. */
+                table.clearTable();
 
                 allVideos = null;
                 allTableVideos = null;
@@ -641,6 +678,12 @@ public class VideosFormController extends BackgroundTaskFormController {
         runInBackground(backgroundRunner, callback);
     }
 
+    @FXML
+    private void includeSubdirectoriesClicked() {
+        settings.saveQuietly(includeSubdirectoriesCheckbox.isSelected(), SettingType.INCLUDE_SUBDIRECTORIES);
+        refreshClicked();
+    }
+
     @FXML
     private void chooseAnotherClicked() {
         File directory = getDirectory(new File(directoryPath), stage, settings);
@@ -706,7 +749,13 @@ public class VideosFormController extends BackgroundTaskFormController {
         totalResultPane.clear();
         lastProcessedVideo = null;
 
-        AutoSelectRunner backgroundRunner = new AutoSelectRunner(table.getItems(), allVideos, ffmpeg, settings);
+        AutoSelectRunner backgroundRunner = new AutoSelectRunner(
+                table.getItems(),
+                allVideos,
+                ffmpeg,
+                subtitleCache,
+                settings
+        );
         BackgroundCallback<MultiPartActionResult> callback = totalResultPane::setActionResult;
         runInBackground(backgroundRunner, callback);
     }
@@ -716,7 +765,12 @@ public class VideosFormController extends BackgroundTaskFormController {
         totalResultPane.clear();
         lastProcessedVideo = null;
 
-        AllSubtitlesLoader backgroundRunner = new AllSubtitlesLoader(table.getItems(), allVideos, ffmpeg);
+        AllSubtitlesLoader backgroundRunner = new AllSubtitlesLoader(
+                table.getItems(),
+                allVideos,
+                ffmpeg,
+                subtitleCache
+        );
         BackgroundCallback<MultiPartActionResult> callback = totalResultPane::setActionResult;
         runInBackground(backgroundRunner, callback);
     }
@@ -726,7 +780,13 @@ public class VideosFormController extends BackgroundTaskFormController {
         totalResultPane.clear();
         lastProcessedVideo = null;
 
-        MergeCheckRunner checkRunner = new MergeCheckRunner(table.getItems(), allVideos, settings);
+        MergeCheckRunner checkRunner = new MergeCheckRunner(
+                table.getItems(),
+                allVideos,
+                settings,
+                subtitleCache,
+                context.getMergeManifest()
+        );
 
         BackgroundCallback<MergeCheckRunner.Result> callback = runnerResult -> {
             if (!StringUtils.isBlank(runnerResult.getSelectionWarning())) {
@@ -752,9 +812,10 @@ public class VideosFormController extends BackgroundTaskFormController {
 
             MergeRunner mergeRunner = new MergeRunner(
                     runnerResult.getSelectedTableVideos(),
+                    runnerResult.getSkippedCount(),
                     allVideos,
                     confirmedFilesToOverwrite,
-                    runnerResult.getLargestFreeSpaceDirectory(),
+                    runnerResult.getDiskSpacePlanner(),
                     context
             );
             BackgroundCallback<MultiPartActionResult> mergeCallback = totalResultPane::setActionResult;
@@ -876,7 +937,7 @@ public class VideosFormController extends BackgroundTaskFormController {
         BackgroundCallback<ProcessExtraVideoFilesRunner.Result> callback = runnerResult -> {
             totalResultPane.setActionResult(runnerResult.getActionResult());
 
-            if (!runnerResult.getActionResult().haveErrors()) {
+            if (runnerResult.getTableData() != null) {
                 table.setData(runnerResult.getTableData(), true);
 
                 allVideos = runnerResult.getAllVideos();
@@ -907,9 +968,16 @@ public class VideosFormController extends BackgroundTaskFormController {
         hideUnavailableCheckbox.setSelected(false);
         GuiUtils.setVisibleAndManaged(addRemoveVideosPane, true);
 
-        ProcessVideoFilesRunner backgroundRunner = new ProcessVideoFilesRunner(videoFiles, table, ffprobe, settings);
+        ProcessVideoFilesRunner backgroundRunner = new ProcessVideoFilesRunner(
+                videoFiles,
+                table,
+                ffprobe,
+                videoInfoCache,
+                settings
+        );
 
         BackgroundCallback<ProcessVideoFilesRunner.Result> callback = runnerResult -> {
+            totalResultPane.setActionResult(runnerResult.getActionResult());
             table.setData(runnerResult.getTableData(), true);
 
             allVideos = runnerResult.getAllVideos();
@@ -2,13 +2,13 @@ package kirill.subtitlemerger.gui.forms.videos.background;
 
 
 import javafx.application.Platform;
-import kirill.subtitlemerger.gui.forms.videos.table.TableSubtitleOption;
 import kirill.subtitlemerger.gui.forms.videos.table.TableVideo;
 import kirill.subtitlemerger.gui.utils.background.BackgroundManager;
 import kirill.subtitlemerger.gui.utils.background.BackgroundRunner;
 import kirill.subtitlemerger.logic.ffmpeg.Ffmpeg;
 import kirill.subtitlemerger.logic.utils.Utils;
 import kirill.subtitlemerger.logic.utils.entities.MultiPartActionResult;
+import kirill.subtitlemerger.logic.videos.SubtitleCache;
 import kirill.subtitlemerger.logic.videos.entities.BuiltInSubtitleOption;
 import kirill.subtitlemerger.logic.videos.entities.Video;
 import lombok.AllArgsConstructor;
@@ -29,6 +29,8 @@ public class AllSubtitlesLoader implements BackgroundRunner<MultiPartActionResul
 
     private Ffmpeg ffmpeg;
 
+    private SubtitleCache subtitleCache;
+
     @Override
     public MultiPartActionResult run(BackgroundManager backgroundManager) {
         backgroundManager.setCancelPossible(false);
@@ -60,17 +62,21 @@ public class AllSubtitlesLoader implements BackgroundRunner<MultiPartActionResul
                     backgroundManager.setCancelDescription(getLoadingCancelDescription(video));
                 }
 
-                for (BuiltInSubtitleOption option : video.getOptionsToLoad()) {
-                    if (Thread.interrupted()) {
-                        throw new InterruptedException();
-                    }
-
-                    TableSubtitleOption tableOption = tableVideo.getOption(option.getId());
-
-                    String action = "Loading " + tableOption.getTitle() + " in " + video.getFile().getName() + "...";
-                    backgroundManager.updateMessage(getProgressAction(processedCount, toLoadCount, action));
+                if (videoToLoadCount == 0) {
+                    continue;
+                }
 
-                    LoadSubtitlesResult loadResult = loadSubtitles(option, video, tableOption, ffmpeg);
+                List<BuiltInSubtitleOption> optionsToLoad = video.getOptionsToLoad();
+                String action = StringUtils.capitalize(getLoadingAction(optionsToLoad, video, tableVideo));
+                backgroundManager.updateMessage(getProgressAction(processedCount, toLoadCount, action));
+
+                for (LoadSubtitlesResult loadResult : loadSubtitles(
+                        optionsToLoad,
+                        video,
+                        tableVideo,
+                        ffmpeg,
+                        subtitleCache
+                )) {
                     if (loadResult == LoadSubtitlesResult.SUCCESS) {
                         successfulCount++;
                     } else if (loadResult == LoadSubtitlesResult.INCORRECT_FORMAT) {
@@ -84,17 +90,17 @@ public class AllSubtitlesLoader implements BackgroundRunner<MultiPartActionResul
                         throw new IllegalStateException();
                     }
 
-                    if (videoFailedCount != 0 || videoIncorrectCount != 0) {
-                        MultiPartActionResult actionResult = getLoadSubtitlesActionResult(
-                                videoToLoadCount,
-                                videoIncorrectCount,
-                                videoFailedCount
-                        );
-                        Platform.runLater(() -> tableVideo.setActionResult(actionResult));
-                    }
-
                     processedCount++;
                 }
+
+                if (videoFailedCount != 0 || videoIncorrectCount != 0) {
+                    MultiPartActionResult actionResult = getLoadSubtitlesActionResult(
+                            videoToLoadCount,
+                            videoIncorrectCount,
+                            videoFailedCount
+                    );
+                    Platform.runLater(() -> tableVideo.setActionResult(actionResult));
+                }
             }
         } catch (InterruptedException e) {
             /* Do nothing here, will just return a result based on the work done. */
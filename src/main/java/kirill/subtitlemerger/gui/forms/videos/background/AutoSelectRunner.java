@@ -10,6 +10,7 @@ import kirill.subtitlemerger.logic.ffmpeg.Ffmpeg;
 import kirill.subtitlemerger.logic.settings.Settings;
 import kirill.subtitlemerger.logic.utils.Utils;
 import kirill.subtitlemerger.logic.utils.entities.MultiPartActionResult;
+import kirill.subtitlemerger.logic.videos.SubtitleCache;
 import kirill.subtitlemerger.logic.videos.entities.BuiltInSubtitleOption;
 import kirill.subtitlemerger.logic.videos.entities.Video;
 import lombok.AllArgsConstructor;
@@ -34,6 +35,8 @@ public class AutoSelectRunner implements BackgroundRunner<MultiPartActionResult>
 
     private Ffmpeg ffmpeg;
 
+    private SubtitleCache subtitleCache;
+
     private Settings settings;
 
     @Override
@@ -68,6 +71,7 @@ public class AutoSelectRunner implements BackgroundRunner<MultiPartActionResult>
                         tableVideo,
                         actionPrefix,
                         ffmpeg,
+                        subtitleCache,
                         settings,
                         backgroundManager
                 );
@@ -99,6 +103,7 @@ public class AutoSelectRunner implements BackgroundRunner<MultiPartActionResult>
             TableVideo tableVideo,
             String actionPrefix,
             Ffmpeg ffmpeg,
+            SubtitleCache subtitleCache,
             Settings settings,
             BackgroundManager backgroundManager
     ) throws InterruptedException {
@@ -109,32 +114,29 @@ public class AutoSelectRunner implements BackgroundRunner<MultiPartActionResult>
 
         backgroundManager.setCancelDescription(getLoadingCancelDescription(video));
 
+        backgroundManager.updateMessage(actionPrefix + getLoadingAction(optionsToLoad, video, tableVideo));
+
         int toLoadCount = optionsToLoad.size();
         int incorrectCount = 0;
         int failedCount = 0;
-        for (BuiltInSubtitleOption option : optionsToLoad) {
-            if (Thread.interrupted()) {
-                throw new InterruptedException();
-            }
-
-            TableSubtitleOption tableOption = tableVideo.getOption(option.getId());
-
-            String action = actionPrefix + "loading " + tableOption.getTitle() + " in " + video.getFile().getName()
-                    + "...";
-            backgroundManager.updateMessage(action);
-
-            LoadSubtitlesResult loadResult = VideosBackgroundUtils.loadSubtitles(option, video, tableOption, ffmpeg);
+        for (LoadSubtitlesResult loadResult : VideosBackgroundUtils.loadSubtitles(
+                optionsToLoad,
+                video,
+                tableVideo,
+                ffmpeg,
+                subtitleCache
+        )) {
             if (loadResult == LoadSubtitlesResult.INCORRECT_FORMAT) {
                 incorrectCount++;
             } else if (loadResult == LoadSubtitlesResult.FAILED) {
                 failedCount++;
             }
+        }
 
-            if (failedCount != 0 || incorrectCount != 0) {
-                String error = "Auto-selecting is not possible: "
-                        + StringUtils.uncapitalize(getLoadSubtitlesError(toLoadCount, failedCount, incorrectCount));
-                Platform.runLater(() -> tableVideo.setOnlyError(error));
-            }
+        if (failedCount != 0 || incorrectCount != 0) {
+            String error = "Auto-selecting is not possible: "
+                    + StringUtils.uncapitalize(getLoadSubtitlesError(toLoadCount, failedCount, incorrectCount));
+            Platform.runLater(() -> tableVideo.setOnlyError(error));
         }
 
         backgroundManager.setCancelDescription(null);
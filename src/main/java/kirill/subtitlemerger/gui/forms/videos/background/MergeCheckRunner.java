@@ -7,6 +7,10 @@ import kirill.subtitlemerger.gui.utils.background.BackgroundRunner;
 import kirill.subtitlemerger.logic.settings.MergeMode;
 import kirill.subtitlemerger.logic.settings.Settings;
 import kirill.subtitlemerger.logic.utils.Utils;
+import kirill.subtitlemerger.logic.videos.DiskSpacePlanner;
+import kirill.subtitlemerger.logic.videos.MergeManifest;
+import kirill.subtitlemerger.logic.videos.SubtitleCache;
+import kirill.subtitlemerger.logic.videos.entities.FileStorePlan;
 import kirill.subtitlemerger.logic.videos.entities.SubtitleOption;
 import kirill.subtitlemerger.logic.videos.entities.Video;
 import lombok.AllArgsConstructor;
@@ -19,8 +23,8 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
-import static kirill.subtitlemerger.gui.forms.videos.background.VideosBackgroundUtils.clearActionResults;
-import static kirill.subtitlemerger.gui.forms.videos.background.VideosBackgroundUtils.getSelectedVideos;
+import static java.util.stream.Collectors.toList;
+import static kirill.subtitlemerger.gui.forms.videos.background.VideosBackgroundUtils.*;
 
 @CommonsLog
 @AllArgsConstructor
@@ -31,6 +35,10 @@ public class MergeCheckRunner implements BackgroundRunner<MergeCheckRunner.Resul
 
     private Settings settings;
 
+    private SubtitleCache subtitleCache;
+
+    private MergeManifest mergeManifest;
+
     @Override
     public Result run(BackgroundManager backgroundManager) {
         backgroundManager.setCancelPossible(false);
@@ -44,19 +52,23 @@ public class MergeCheckRunner implements BackgroundRunner<MergeCheckRunner.Resul
             return new Result(
                     selectionWarning,
                     null,
+                    0,
                     null,
                     null,
                     null
             );
         }
 
-        FreeSpaceInfo freeSpaceInfo = getFreeSpaceInfo(selectedTableVideos, videos, settings, backgroundManager);
+        List<TableVideo> videosToMerge = getChangedVideos(selectedTableVideos, backgroundManager);
+
+        DiskSpacePlanner spacePlanner = getDiskSpacePlanner(videosToMerge, videos, settings, backgroundManager);
         return new Result(
                 null,
-                selectedTableVideos,
-                freeSpaceInfo != null ? getFreeSpaceMessage(freeSpaceInfo) : null,
-                freeSpaceInfo != null ? freeSpaceInfo.getLargestFreeSpaceDirectory() : null,
-                getFilesToOverwrite(selectedTableVideos, videos, settings, backgroundManager)
+                videosToMerge,
+                selectedTableVideos.size() - videosToMerge.size(),
+                spacePlanner,
+                spacePlanner != null ? getFreeSpaceMessage(spacePlanner) : null,
+                getFilesToOverwrite(videosToMerge, videos, settings, backgroundManager)
         );
     }
 
@@ -87,8 +99,39 @@ public class MergeCheckRunner implements BackgroundRunner<MergeCheckRunner.Resul
         }
     }
 
+    /*
+     * Returns the videos that have to be merged. The videos whose result is already in place according to the merge
+     * manifest (the inputs and the settings are the same and the result hasn't been changed since then) are skipped.
+     */
+    private List<TableVideo> getChangedVideos(List<TableVideo> tableVideos, BackgroundManager backgroundManager) {
+        backgroundManager.updateMessage("Checking for the videos that haven't changed since the last merge...");
+
+        List<TableVideo> result = new ArrayList<>();
+        for (TableVideo tableVideo : tableVideos) {
+            Video video = Video.getById(tableVideo.getId(), videos);
+            SubtitleOption upperOption = video.getOption(tableVideo.getUpperOption().getId());
+            SubtitleOption lowerOption = video.getOption(tableVideo.getLowerOption().getId());
+
+            String fingerprint = getMergeFingerprint(video, upperOption, lowerOption, settings, subtitleCache);
+            File outputFile = getMergeOutputFile(video, upperOption, lowerOption, settings);
+            if (fingerprint != null && mergeManifest.contains(outputFile, fingerprint)) {
+                String warning = "Merging is not needed because the selected subtitles have already been merged";
+                Platform.runLater(() -> tableVideo.setOnlyWarning(warning));
+            } else {
+                result.add(tableVideo);
+            }
+        }
+
+        return result;
+    }
+
+    /*
+     * Temporary videos are created next to the original videos so that the originals can be replaced with a rename, so
+     * the free space is planned for each file store separately, taking into account how many videos can be processed
+     * at the same time.
+     */
     @Nullable
-    private static FreeSpaceInfo getFreeSpaceInfo(
+    private static DiskSpacePlanner getDiskSpacePlanner(
             List<TableVideo> tableVideos,
             List<Video> videos,
             Settings settings,
@@ -100,44 +143,46 @@ public class MergeCheckRunner implements BackgroundRunner<MergeCheckRunner.Resul
 
         backgroundManager.updateMessage("Calculating the required temporary space...");
 
-        Long requiredSpace = null;
-        Long freeSpace = null;
-        File largestFreeSpaceDirectory = null;
-
-        for (TableVideo tableVideo : tableVideos) {
-            Video video = Video.getById(tableVideo.getId(), videos);
-
-            long currentRequiredSpace = video.getFile().length();
-            long currentFreeSpace = video.getFile().getFreeSpace();
+        List<File> videoFiles = tableVideos.stream()
+                .map(tableVideo -> Video.getById(tableVideo.getId(), videos).getFile())
+                .collect(toList());
+        int workerCount = Math.min(settings.getMergeWorkerCount(), videoFiles.size());
 
-            if (requiredSpace == null || requiredSpace < currentRequiredSpace) {
-                requiredSpace = currentRequiredSpace;
-            }
+        return DiskSpacePlanner.create(videoFiles, workerCount);
+    }
 
-            if (freeSpace == null || freeSpace < currentFreeSpace) {
-                freeSpace = currentFreeSpace;
-                largestFreeSpaceDirectory = video.getFile().getParentFile();
-            }
+    /*
+     * The plan is shown only if some of the file stores don't have enough space, the videos on such file stores will
+     * be processed one at a time if possible.
+     */
+    @Nullable
+    private static String getFreeSpaceMessage(DiskSpacePlanner diskSpacePlanner) {
+        if (diskSpacePlanner.isEnoughSpace()) {
+            return null;
         }
 
-        if (requiredSpace == null || largestFreeSpaceDirectory == null) {
-            log.error("free space data is null, that means no videos have been selected, most likely a bug");
-            throw new IllegalStateException();
+        List<FileStorePlan> plans = diskSpacePlanner.getPlans();
+        if (plans.size() == 1) {
+            FileStorePlan plan = plans.get(0);
+            return "Merging requires approximately " + Utils.getSizeTextual(plan.getRequiredSpace(), false)
+                    + " of free disk space during the process but only "
+                    + Utils.getSizeTextual(plan.getFreeSpace(), false) + " is available, proceed anyway?";
         }
 
-        return new FreeSpaceInfo(requiredSpace, freeSpace, largestFreeSpaceDirectory);
-    }
-
-    @Nullable
-    private static String getFreeSpaceMessage(FreeSpaceInfo freeSpaceInfo) {
-        if (freeSpaceInfo.getRequiredSpace() <= freeSpaceInfo.getFreeSpace()) {
-            return null;
+        StringBuilder result = new StringBuilder("Merging requires more free disk space during the process than is "
+                + "available on some of the disks:");
+        for (FileStorePlan plan : plans) {
+            result.append("\n").append(plan.getName()).append(" - ")
+                    .append(Utils.getTextDependingOnCount(plan.getVideoCount(), "1 video", "%d videos"))
+                    .append(", ").append(Utils.getSizeTextual(plan.getRequiredSpace(), false)).append(" required, ")
+                    .append(Utils.getSizeTextual(plan.getFreeSpace(), false)).append(" available");
+            if (!plan.isEnoughSpace()) {
+                result.append(" (not enough)");
+            }
         }
+        result.append("\nProceed anyway?");
 
-        return "Merging requires approximately "
-                + Utils.getSizeTextual(freeSpaceInfo.getRequiredSpace(), false) + " of free disk space during "
-                + "the process but only " + Utils.getSizeTextual(freeSpaceInfo.getFreeSpace(), false) + " is "
-                + "available, proceed anyway?";
+        return result.toString();
     }
 
     private static List<File> getFilesToOverwrite(
@@ -172,22 +217,17 @@ public class MergeCheckRunner implements BackgroundRunner<MergeCheckRunner.Resul
     public static class Result {
         private String selectionWarning;
 
+        /*
+         * The selected videos except the ones that don't have to be merged again.
+         */
         private List<TableVideo> selectedTableVideos;
 
-        private String freeSpaceMessage;
+        private int skippedCount;
 
-        private File largestFreeSpaceDirectory;
+        private DiskSpacePlanner diskSpacePlanner;
 
-        private List<File> filesToOverwrite;
-    }
-
-    @AllArgsConstructor
-    @Getter
-    private static class FreeSpaceInfo {
-        private long requiredSpace;
-
-        private long freeSpace;
+        private String freeSpaceMessage;
 
-        private File largestFreeSpaceDirectory;
+        private List<File> filesToOverwrite;
     }
 }
@@ -11,18 +11,24 @@ import kirill.subtitlemerger.gui.utils.background.BackgroundRunner;
 import kirill.subtitlemerger.logic.ffmpeg.Ffmpeg;
 import kirill.subtitlemerger.logic.ffmpeg.FfmpegException;
 import kirill.subtitlemerger.logic.ffmpeg.FfmpegInjectInfo;
+import kirill.subtitlemerger.logic.ffmpeg.FfmpegInjectProgress;
+import kirill.subtitlemerger.logic.ffmpeg.FfmpegInjectSubtitles;
 import kirill.subtitlemerger.logic.ffmpeg.Ffprobe;
 import kirill.subtitlemerger.logic.ffmpeg.json.JsonFfprobeVideoInfo;
 import kirill.subtitlemerger.logic.settings.MergeMode;
 import kirill.subtitlemerger.logic.settings.Settings;
+import kirill.subtitlemerger.logic.subtitles.SubRipWriter;
 import kirill.subtitlemerger.logic.subtitles.SubtitleMerger;
 import kirill.subtitlemerger.logic.subtitles.entities.SubtitleFormat;
 import kirill.subtitlemerger.logic.subtitles.entities.Subtitles;
 import kirill.subtitlemerger.logic.subtitles.entities.SubtitlesAndInput;
-import kirill.subtitlemerger.logic.subtitles.entities.SubtitlesAndOutput;
 import kirill.subtitlemerger.logic.utils.Utils;
 import kirill.subtitlemerger.logic.utils.entities.ActionResult;
 import kirill.subtitlemerger.logic.utils.entities.MultiPartActionResult;
+import kirill.subtitlemerger.logic.videos.DiskSpacePlanner;
+import kirill.subtitlemerger.logic.videos.MergeManifest;
+import kirill.subtitlemerger.logic.videos.ProcessedSubtitleCache;
+import kirill.subtitlemerger.logic.videos.SubtitleCache;
 import kirill.subtitlemerger.logic.videos.Videos;
 import kirill.subtitlemerger.logic.videos.entities.BuiltInSubtitleOption;
 import kirill.subtitlemerger.logic.videos.entities.ExternalSubtitleOption;
@@ -39,11 +45,16 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
 
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
@@ -54,31 +65,59 @@ import static kirill.subtitlemerger.gui.forms.videos.background.VideosBackground
 public class MergeRunner implements BackgroundRunner<MultiPartActionResult> {
     private List<TableVideo> tableVideos;
 
+    /*
+     * The number of the selected videos that have been skipped because they haven't changed since the last merge
+     * according to the merge manifest, they are counted separately in the result.
+     */
+    private int skippedCount;
+
     private List<Video> videos;
 
     private List<File> confirmedFilesToOverwrite;
 
-    private File largestFreeSpaceDirectory;
+    /*
+     * Is null if the merge mode is not to inject into the original videos.
+     */
+    @Nullable
+    private DiskSpacePlanner diskSpacePlanner;
 
     private Ffprobe ffprobe;
 
     private Ffmpeg ffmpeg;
 
+    private SubtitleCache subtitleCache;
+
+    private ProcessedSubtitleCache processedSubtitleCache;
+
+    private MergeManifest mergeManifest;
+
     private Settings settings;
 
+    /*
+     * With several workers the texts of different videos would replace each other all the time (and the background
+     * manager is not meant to be used from several threads anyway), so in that case the workers don't show their
+     * status and the progress of injections, the collecting thread shows how many videos have been processed instead.
+     */
+    private boolean parallel;
+
     public MergeRunner(
             List<TableVideo> tableVideos,
+            int skippedCount,
             List<Video> videos,
             List<File> confirmedFilesToOverwrite,
-            File largestFreeSpaceDirectory,
+            @Nullable DiskSpacePlanner diskSpacePlanner,
             GuiContext context
     ) {
         this.tableVideos = tableVideos;
+        this.skippedCount = skippedCount;
         this.videos = videos;
         this.confirmedFilesToOverwrite = confirmedFilesToOverwrite;
-        this.largestFreeSpaceDirectory = largestFreeSpaceDirectory;
+        this.diskSpacePlanner = diskSpacePlanner;
         ffprobe = context.getFfprobe();
         ffmpeg = context.getFfmpeg();
+        subtitleCache = context.getSubtitleCache();
+        processedSubtitleCache = context.getProcessedSubtitleCache();
+        mergeManifest = context.getMergeManifest();
         settings = context.getSettings();
     }
 
@@ -87,51 +126,116 @@ public class MergeRunner implements BackgroundRunner<MultiPartActionResult> {
         backgroundManager.setCancelPossible(true);
         backgroundManager.setIndeterminateProgress();
 
+        Counters counters = new Counters();
+        for (int i = 0; i < skippedCount; i++) {
+            counters.add(IterationError.UNCHANGED);
+        }
+
+        try {
+            int workerCount = Math.min(settings.getMergeWorkerCount(), tableVideos.size());
+            parallel = workerCount > 1;
+            if (workerCount > 1) {
+                processVideosInParallel(workerCount, counters, backgroundManager);
+            } else {
+                processVideosSequentially(counters, backgroundManager);
+            }
+        } catch (InterruptedException e) {
+            /* Do nothing here, will just return a result based on the work done. */
+        }
+
+        return getActionResult(
+                skippedCount + tableVideos.size(),
+                counters.getProcessedCount(),
+                counters.getSuccessfulCount(),
+                counters.getUnchangedCount(),
+                counters.getNoOverwriteConfirmationCount(),
+                counters.getAlreadyMergedCount(),
+                counters.getFailedCount()
+        );
+    }
+
+    private void processVideosSequentially(
+            Counters counters,
+            BackgroundManager backgroundManager
+    ) throws InterruptedException {
         int toProcessCount = tableVideos.size();
-        int processedCount = 0;
-        int successfulCount = 0;
-        int noOverwriteConfirmationCount = 0;
-        int alreadyMergedCount = 0;
-        int failedCount = 0;
+        for (TableVideo tableVideo : tableVideos) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+
+            String actionPrefix = getProgressAction(counters.getProcessedCount(), toProcessCount, "Merge: ");
+            counters.add(getIterationError(tableVideo, actionPrefix, backgroundManager));
+        }
+    }
+
+    /*
+     * Videos don't depend on each other so several of them can be processed at the same time, that helps a lot because
+     * ffmpeg uses only one core for most of the work. The current thread just collects the results, and if it gets
+     * interrupted (the task is canceled) it interrupts all the workers and waits for them to finish. The interrupted
+     * injections are stopped by killing ffmpeg, the original videos stay untouched in that case because they are
+     * replaced only after ffmpeg has finished.
+     */
+    private void processVideosInParallel(
+            int workerCount,
+            Counters counters,
+            BackgroundManager backgroundManager
+    ) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(workerCount);
+        CompletionService<IterationError> completionService = new ExecutorCompletionService<>(executor);
+
         try {
-            for (TableVideo tableVideo : tableVideos) {
-                if (Thread.interrupted()) {
-                    throw new InterruptedException();
-                }
+            int toProcessCount = tableVideos.size();
+            for (int i = 0; i < toProcessCount; i++) {
+                TableVideo tableVideo = tableVideos.get(i);
+                String actionPrefix = getProgressAction(i, toProcessCount, "Merge: ");
+                completionService.submit(() -> getIterationError(tableVideo, actionPrefix, backgroundManager));
+            }
 
-                Video video = Video.getById(tableVideo.getId(), videos);
-                String actionPrefix = getProgressAction(processedCount, toProcessCount, "Merge: ");
+            backgroundManager.setCancelDescription(null);
+            for (int i = 0; i < toProcessCount; i++) {
+                backgroundManager.updateProgress(i, toProcessCount);
+                backgroundManager.updateMessage(
+                        "Merge: " + i + "/" + toProcessCount + " videos processed, "
+                                + Math.min(workerCount, toProcessCount - i) + " in progress..."
+                );
 
                 try {
-                    processVideo(tableVideo, video, actionPrefix, backgroundManager);
-                    successfulCount++;
-                } catch (BreakIterationException e) {
-                    if (e.getIterationError() == IterationError.NO_OVERWRITE_CONFIRMATION) {
-                        noOverwriteConfirmationCount++;
-                    } else if (e.getIterationError() == IterationError.ALREADY_MERGED) {
-                        alreadyMergedCount++;
-                    } else if (e.getIterationError() == IterationError.GENERAL_ERROR) {
-                        failedCount++;
+                    counters.add(completionService.take().get());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof InterruptedException) {
+                        throw (InterruptedException) e.getCause();
+                    } else if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
                     } else {
-                        log.error("unexpected iteration error: " + e.getIterationError() + ", most likely a bug");
+                        log.error("unexpected exception in a worker: " + ExceptionUtils.getStackTrace(e));
                         throw new IllegalStateException();
                     }
                 }
-
-                processedCount++;
             }
-        } catch (InterruptedException e) {
-            /* Do nothing here, will just return a result based on the work done. */
+        } finally {
+            executor.shutdownNow();
+            waitForTermination(executor);
         }
+    }
 
-        return getActionResult(
-                toProcessCount,
-                processedCount,
-                successfulCount,
-                noOverwriteConfirmationCount,
-                alreadyMergedCount,
-                failedCount
-        );
+    /**
+     * Returns null if the video has been processed successfully or the reason why it hasn't been otherwise.
+     */
+    @Nullable
+    private IterationError getIterationError(
+            TableVideo tableVideo,
+            String actionPrefix,
+            BackgroundManager backgroundManager
+    ) throws InterruptedException {
+        Video video = Video.getById(tableVideo.getId(), videos);
+
+        try {
+            processVideo(tableVideo, video, actionPrefix, backgroundManager);
+            return null;
+        } catch (BreakIterationException e) {
+            return e.getIterationError();
+        }
     }
 
     private void processVideo(
@@ -140,8 +244,8 @@ public class MergeRunner implements BackgroundRunner<MultiPartActionResult> {
             String actionPrefix,
             BackgroundManager backgroundManager
     ) throws InterruptedException, BreakIterationException {
-        backgroundManager.setCancelDescription(null);
-        backgroundManager.updateMessage(actionPrefix + "processing " + video.getFile().getName()+ "...");
+        showCancelDescription(null, backgroundManager);
+        showMessage(actionPrefix + "processing " + video.getFile().getName()+ "...", backgroundManager);
 
         SubtitleOption upperOption = video.getOption(tableVideo.getUpperOption().getId());
         SubtitleOption lowerOption = video.getOption(tableVideo.getLowerOption().getId());
@@ -153,44 +257,78 @@ public class MergeRunner implements BackgroundRunner<MultiPartActionResult> {
         List<BuiltInSubtitleOption> optionsToLoad = getOptionsToLoad(video, upperOption, lowerOption, settings);
         loadSubtitles(optionsToLoad, video, tableVideo, actionPrefix, backgroundManager);
 
-        SubtitlesAndOutput merged = getMergedSubtitles(
-                upperOption,
-                lowerOption,
-                actionPrefix,
-                settings,
-                backgroundManager
-        );
+        Subtitles merged = getMergedSubtitles(upperOption, lowerOption, actionPrefix, backgroundManager);
 
         if (settings.getMergeMode() == MergeMode.ORIGINAL_VIDEOS) {
-            backgroundManager.setCancelDescription(getInjectingCancelDescription(video));
+            showCancelDescription(getInjectingCancelDescription(video), backgroundManager);
 
-            backgroundManager.updateMessage(actionPrefix + "processing the text to inject...");
-            String textToInject = getTextToInject(merged, tableVideo, ffmpeg);
+            showMessage(actionPrefix + "processing the text to inject...", backgroundManager);
+            String textToInject = getTextToInject(merged, settings, tableVideo, ffmpeg, processedSubtitleCache);
             checkTextNotEmpty(textToInject, tableVideo);
 
-            backgroundManager.updateMessage(actionPrefix + "checking for duplicates...");
-            checkForDuplicates(textToInject, video, tableVideo);
+            String fingerprint = getMergeFingerprint(video, upperOption, lowerOption, settings, subtitleCache);
+            Set<String> fingerprints = mergeManifest.getFingerprints(video.getFile());
 
-            backgroundManager.updateMessage(actionPrefix + "injecting the result into the video...");
+            showMessage(actionPrefix + "checking for duplicates...", backgroundManager);
+            try {
+                checkForDuplicates(textToInject, video, tableVideo);
+            } catch (BreakIterationException e) {
+                if (e.getIterationError() == IterationError.ALREADY_MERGED) {
+                    addToManifest(video.getFile(), fingerprints, fingerprint);
+                }
+                throw e;
+            }
+
+            reserveDiskSpace(video, actionPrefix, backgroundManager);
+
+            showMessage(actionPrefix + "injecting the result into the video...", backgroundManager);
             boolean injectionFinished = false;
             InterruptedException interruptedException = null;
             try {
-                injectToVideo(textToInject, video, tableVideo, upperOption, lowerOption);
+                injectToVideo(
+                        textToInject,
+                        video,
+                        tableVideo,
+                        upperOption,
+                        lowerOption,
+                        actionPrefix,
+                        backgroundManager
+                );
                 injectionFinished = true;
             } catch (InterruptedException e) {
                 interruptedException = e;
             } finally {
+                if (diskSpacePlanner != null) {
+                    diskSpacePlanner.release(video.getFile());
+                }
                 updateVideo(video, tableVideo, textToInject, injectionFinished, interruptedException);
             }
+
+            /* The fingerprints of the previous merges stay valid because the merged streams are still there. */
+            addToManifest(video.getFile(), fingerprints, fingerprint);
         } else if (settings.getMergeMode() == MergeMode.SEPARATE_SUBTITLE_FILES) {
-            backgroundManager.updateMessage(actionPrefix + "writing the result to the file...");
-            saveToSubtitleFile(video, tableVideo, upperOption, lowerOption, merged);
+            showMessage(actionPrefix + "writing the result to the file...", backgroundManager);
+            saveToSubtitleFile(video, tableVideo, upperOption, lowerOption, merged, settings);
+
+            String fingerprint = getMergeFingerprint(video, upperOption, lowerOption, settings, subtitleCache);
+            File outputFile = getMergeOutputFile(video, upperOption, lowerOption, settings);
+            addToManifest(outputFile, new HashSet<>(), fingerprint);
         } else {
             log.error("unexpected merge mode: " + settings.getMergeMode() + ", most likely a bug");
             throw new IllegalStateException();
         }
     }
 
+    private void addToManifest(File outputFile, Set<String> previousFingerprints, @Nullable String fingerprint) {
+        if (fingerprint == null) {
+            return;
+        }
+
+        Set<String> fingerprints = new HashSet<>(previousFingerprints);
+        fingerprints.add(fingerprint);
+        mergeManifest.put(outputFile, fingerprints);
+    }
+
     private static void checkOverwriteConfirmation(
             Video video,
             TableVideo tableVideo,
@@ -219,12 +357,12 @@ public class MergeRunner implements BackgroundRunner<MultiPartActionResult> {
 
         /*
          * When injecting into original videos we should load not only the selected options but also the merged ones in
-         * order to check for duplicates later.
+         * order to check for duplicates later. Except for the ones with digests, the digests are compared instead.
          */
         if (settings.getMergeMode() == MergeMode.ORIGINAL_VIDEOS) {
             notFilteredOptions.addAll(
                     video.getBuiltInOptions().stream()
-                            .filter(BuiltInSubtitleOption::isMerged)
+                            .filter(option -> option.isMerged() && option.getMergedDigest() == null)
                             .collect(toList())
             );
         }
@@ -248,54 +386,49 @@ public class MergeRunner implements BackgroundRunner<MultiPartActionResult> {
             return;
         }
 
-        backgroundManager.setCancelDescription(getLoadingCancelDescription(video));
+        showCancelDescription(getLoadingCancelDescription(video), backgroundManager);
+
+        showMessage(actionPrefix + getLoadingAction(optionsToLoad, video, tableVideo), backgroundManager);
 
         int toLoadCount = optionsToLoad.size();
         int incorrectCount = 0;
         int failedCount = 0;
-        for (BuiltInSubtitleOption option : optionsToLoad) {
-            if (Thread.interrupted()) {
-                throw new InterruptedException();
-            }
-
-            TableSubtitleOption tableOption = tableVideo.getOption(option.getId());
-
-            String action = actionPrefix + "loading " + tableOption.getTitle() + " in " + video.getFile().getName()
-                    + "...";
-            backgroundManager.updateMessage(action);
-
-            LoadSubtitlesResult loadResult = VideosBackgroundUtils.loadSubtitles(option, video, tableOption, ffmpeg);
+        for (LoadSubtitlesResult loadResult : VideosBackgroundUtils.loadSubtitles(
+                optionsToLoad,
+                video,
+                tableVideo,
+                ffmpeg,
+                subtitleCache
+        )) {
             if (loadResult == LoadSubtitlesResult.INCORRECT_FORMAT) {
                 incorrectCount++;
             } else if (loadResult == LoadSubtitlesResult.FAILED) {
                 failedCount++;
             }
+        }
 
-            if (failedCount != 0 || incorrectCount != 0) {
-                String error = "Merging is not possible: "
-                        + StringUtils.uncapitalize(getLoadSubtitlesError(toLoadCount, failedCount, incorrectCount));
-                Platform.runLater(() -> tableVideo.setOnlyError(error));
-            }
+        if (failedCount != 0 || incorrectCount != 0) {
+            String error = "Merging is not possible: "
+                    + StringUtils.uncapitalize(getLoadSubtitlesError(toLoadCount, failedCount, incorrectCount));
+            Platform.runLater(() -> tableVideo.setOnlyError(error));
         }
 
-        backgroundManager.setCancelDescription(null);
+        showCancelDescription(null, backgroundManager);
 
         if (failedCount != 0 || incorrectCount != 0) {
             throw new BreakIterationException(IterationError.GENERAL_ERROR);
         }
     }
 
-    private static SubtitlesAndOutput getMergedSubtitles(
+    private Subtitles getMergedSubtitles(
             SubtitleOption upperOption,
             SubtitleOption lowerOption,
             String actionPrefix,
-            Settings settings,
             BackgroundManager backgroundManager
     ) throws InterruptedException {
-        backgroundManager.updateMessage(actionPrefix + "merging the subtitles...");
+        showMessage(actionPrefix + "merging the subtitles...", backgroundManager);
 
-        Subtitles merged = SubtitleMerger.mergeSubtitles(upperOption.getSubtitles(), lowerOption.getSubtitles());
-        return SubtitlesAndOutput.from(merged, settings.isPlainTextSubtitles());
+        return SubtitleMerger.mergeSubtitles(upperOption.getSubtitles(), lowerOption.getSubtitles());
     }
 
     @Nullable
@@ -309,18 +442,29 @@ public class MergeRunner implements BackgroundRunner<MultiPartActionResult> {
 
     /*
      * The text to inject may differ from the text we have because ffmpeg will make its own transformations with it. For
-     * more details please see the comment in the Ffmpeg::getProcessedSubtitles method.
+     * more details please see the comment in the Ffmpeg::getProcessedSubtitles method. The results of ffmpeg are cached
+     * because videos often have the same subtitles (different cuts of one movie or episodes from one release for
+     * example).
      */
     private static String getTextToInject(
-            SubtitlesAndOutput merged,
+            Subtitles merged,
+            Settings settings,
             TableVideo tableVideo,
-            Ffmpeg ffmpeg
+            Ffmpeg ffmpeg,
+            ProcessedSubtitleCache processedSubtitleCache
     ) throws InterruptedException, BreakIterationException {
+        String text = SubRipWriter.toText(merged, settings.isPlainTextSubtitles());
+        String codec = SubtitleFormat.SUB_RIP.getFfmpegCodecs().get(0);
+
+        String ffmpegKey = ffmpeg.getExecutableKey();
+        byte[] cachedSubtitles = processedSubtitleCache.get(text, codec, ffmpegKey);
+        if (cachedSubtitles != null) {
+            return new String(cachedSubtitles, StandardCharsets.UTF_8);
+        }
+
         try {
-            byte[] rawSubtitles = ffmpeg.getProcessedSubtitles(
-                    merged.getText(),
-                    SubtitleFormat.SUB_RIP.getFfmpegCodecs().get(0)
-            );
+            byte[] rawSubtitles = ffmpeg.getProcessedSubtitles(text, codec);
+            processedSubtitleCache.put(text, codec, ffmpegKey, rawSubtitles);
             return new String(rawSubtitles, StandardCharsets.UTF_8);
         } catch (FfmpegException e) {
             log.warn("failed to get processed subtitles: " + e.getCode() + ", console output " + e.getConsoleOutput());
@@ -342,19 +486,14 @@ public class MergeRunner implements BackgroundRunner<MultiPartActionResult> {
             Video video,
             TableVideo tableVideo
     ) throws BreakIterationException {
+        String digestToInject = Ffmpeg.getSubtitleDigest(textToInject);
+
         for (BuiltInSubtitleOption option : video.getBuiltInOptions()) {
             if (!option.isMerged()) {
                 continue;
             }
 
-            SubtitlesAndInput optionSubtitlesAndInput = option.getSubtitlesAndInput();
-            if (optionSubtitlesAndInput == null) {
-                log.error("option subtitles are null, shouldn't have gotten here, most likely a bug");
-                throw new IllegalStateException();
-            }
-
-            String optionText = new String(optionSubtitlesAndInput.getRawData(), optionSubtitlesAndInput.getEncoding());
-            if (Objects.equals(textToInject, optionText)) {
+            if (isDuplicate(textToInject, digestToInject, option)) {
                 String warning = "Merging is not possible because the selected subtitles have already been merged";
                 Platform.runLater(() -> tableVideo.setOnlyWarning(warning));
                 throw new BreakIterationException(IterationError.ALREADY_MERGED);
@@ -362,12 +501,65 @@ public class MergeRunner implements BackgroundRunner<MultiPartActionResult> {
         }
     }
 
+    /*
+     * The digest is compared if the stream has it, otherwise (the stream has been merged by an older version of the
+     * application) the texts are compared.
+     */
+    static boolean isDuplicate(String textToInject, String digestToInject, BuiltInSubtitleOption option) {
+        if (option.getMergedDigest() != null) {
+            return option.getMergedDigest().equals(digestToInject);
+        }
+
+        SubtitlesAndInput optionSubtitlesAndInput = option.getSubtitlesAndInput();
+        if (optionSubtitlesAndInput == null) {
+            log.error("option subtitles are null, shouldn't have gotten here, most likely a bug");
+            throw new IllegalStateException();
+        }
+
+        String optionText = new String(optionSubtitlesAndInput.getRawData(), optionSubtitlesAndInput.getEncoding());
+        return Objects.equals(textToInject, optionText);
+    }
+
+    /*
+     * If the file store for the temporary video doesn't have enough space for all the injections that run at the same
+     * time, this injection waits for the others to finish.
+     */
+    private void reserveDiskSpace(
+            Video video,
+            String actionPrefix,
+            BackgroundManager backgroundManager
+    ) throws InterruptedException {
+        if (diskSpacePlanner == null) {
+            log.error("disk space planner is null when injecting, most likely a bug");
+            throw new IllegalStateException();
+        }
+
+        if (!diskSpacePlanner.tryReserve(video.getFile())) {
+            showMessage(actionPrefix + "waiting for free disk space...", backgroundManager);
+            diskSpacePlanner.reserve(video.getFile());
+        }
+    }
+
+    private void showMessage(String message, BackgroundManager backgroundManager) {
+        if (!parallel) {
+            backgroundManager.updateMessage(message);
+        }
+    }
+
+    private void showCancelDescription(@Nullable String cancelDescription, BackgroundManager backgroundManager) {
+        if (!parallel) {
+            backgroundManager.setCancelDescription(cancelDescription);
+        }
+    }
+
     private void injectToVideo(
             String subtitleText,
             Video video,
             TableVideo tableVideo,
             SubtitleOption upperOption,
-            SubtitleOption lowerOption
+            SubtitleOption lowerOption,
+            String actionPrefix,
+            BackgroundManager backgroundManager
     ) throws InterruptedException, BreakIterationException {
         String title = getMergedTitle(upperOption, lowerOption, settings.isPlainTextSubtitles());
         List<Integer> streamsToMakeNotDefaultIndices = video.getBuiltInOptions().stream()
@@ -375,23 +567,41 @@ public class MergeRunner implements BackgroundRunner<MultiPartActionResult> {
                 .map(BuiltInSubtitleOption::getFfmpegIndex)
                 .collect(toList());
 
-        FfmpegInjectInfo injectInfo = new FfmpegInjectInfo(
+        FfmpegInjectSubtitles subtitles = new FfmpegInjectSubtitles(
                 subtitleText,
-                video.getBuiltInOptions().size(),
                 getMergedLanguage(upperOption, lowerOption),
                 title,
-                settings.isMakeMergedStreamsDefault(),
+                settings.isMakeMergedStreamsDefault()
+        );
+
+        FfmpegInjectInfo injectInfo = new FfmpegInjectInfo(
+                Collections.singletonList(subtitles),
+                video.getBuiltInOptions().size(),
                 streamsToMakeNotDefaultIndices,
                 video.getFile(),
-                largestFreeSpaceDirectory
+                /*
+                 * Usually the directory of the video so that the video can be replaced with a rename, see the
+                 * DiskSpacePlanner class for the details.
+                 */
+                diskSpacePlanner.getTempVideoDirectory(video.getFile())
         );
 
+        InjectionProgressConsumer progressConsumer = null;
+        if (!parallel && video.getDurationMillis() != null) {
+            long durationMillis = video.getDurationMillis();
+            progressConsumer = new InjectionProgressConsumer(durationMillis, actionPrefix, backgroundManager);
+        }
+
         try {
-            ffmpeg.injectSubtitlesToFile(injectInfo);
+            ffmpeg.injectSubtitlesToFile(injectInfo, progressConsumer);
         } catch (FfmpegException e) {
             log.warn("failed to inject subtitles: " + e.getCode() + ", console output " + e.getConsoleOutput());
             Platform.runLater(() -> tableVideo.setOnlyError(getInjectErrorText(e)));
             throw new BreakIterationException(IterationError.GENERAL_ERROR);
+        } finally {
+            if (progressConsumer != null) {
+                backgroundManager.setIndeterminateProgress();
+            }
         }
     }
 
@@ -436,7 +646,9 @@ public class MergeRunner implements BackgroundRunner<MultiPartActionResult> {
     private static String getInjectErrorText(FfmpegException exception) {
         String result = "Merging has failed: ";
 
-        if (exception.getCode() == FfmpegException.Code.FAILED_TO_MOVE_TEMP_VIDEO) {
+        if (exception.getCode() == FfmpegException.Code.FAILED_TO_CREATE_TEMP_VIDEO) {
+            return result + "couldn't create the temporary video file";
+        } else if (exception.getCode() == FfmpegException.Code.FAILED_TO_MOVE_TEMP_VIDEO) {
             return result + "couldn't move the temporary video file";
         } else if (exception.getCode() == FfmpegException.Code.PROCESS_FAILED) {
             return result + "ffmpeg returned an error";
@@ -490,6 +702,8 @@ public class MergeRunner implements BackgroundRunner<MultiPartActionResult> {
         if (newOption != null) {
             modifyOldOptions(video.getBuiltInOptions(), newOption);
             video.getOptions().add(newOption);
+            video.updateSizeAndLastModified();
+            updateSubtitleCache(video);
 
             /* We pass canHideOptions=false because a merged option shouldn't be hidden anyway. */
             TableSubtitleOption newTableOption = tableOptionFrom(newOption, false, tableVideo, settings);
@@ -552,6 +766,27 @@ public class MergeRunner implements BackgroundRunner<MultiPartActionResult> {
         }
     }
 
+    /*
+     * The video has changed so all the subtitles cached for it are outdated. But the new stream is added after the
+     * existing ones so their indices stay the same and the subtitles that have already been loaded can be cached again
+     * for the new version of the video.
+     */
+    private void updateSubtitleCache(Video video) {
+        subtitleCache.invalidate(video.getFile());
+
+        for (BuiltInSubtitleOption option : video.getBuiltInOptions()) {
+            if (option.getSubtitlesAndInput() != null) {
+                subtitleCache.put(
+                        video.getFile(),
+                        video.getSize(),
+                        video.getLastModifiedMillis(),
+                        option.getFfmpegIndex(),
+                        option.getSubtitlesAndInput().getRawData()
+                );
+            }
+        }
+    }
+
     private void modifyOldOptions(List<BuiltInSubtitleOption> oldOptions, BuiltInSubtitleOption newOption) {
         if (newOption.isDefaultDisposition()) {
             for (BuiltInSubtitleOption oldOption : oldOptions) {
@@ -565,16 +800,13 @@ public class MergeRunner implements BackgroundRunner<MultiPartActionResult> {
             TableVideo tableVideo,
             SubtitleOption upperOption,
             SubtitleOption lowerOption,
-            SubtitlesAndOutput merged
+            Subtitles merged,
+            Settings settings
     ) throws BreakIterationException {
-        try {
-            File subtitleFile = new File(Utils.getMergedSubtitleFilePath(video, upperOption, lowerOption));
+        File subtitleFile = new File(Utils.getMergedSubtitleFilePath(video, upperOption, lowerOption));
 
-            FileUtils.writeStringToFile(
-                    subtitleFile,
-                    merged.getText(),
-                    StandardCharsets.UTF_8
-            );
+        try (OutputStream outputStream = FileUtils.openOutputStream(subtitleFile)) {
+            SubRipWriter.write(merged, settings.isPlainTextSubtitles(), outputStream);
         } catch (IOException e) {
             log.warn("failed to save subtitles to file: " + ExceptionUtils.getStackTrace(e));
             String error = "Failed to write the result, probably there is no access to the file";
@@ -587,6 +819,7 @@ public class MergeRunner implements BackgroundRunner<MultiPartActionResult> {
             int toProcessCount,
             int processedCount,
             int successfulCount,
+            int unchangedCount,
             int noOverwriteConfirmationCount,
             int alreadyMergedCount,
             int failedCount
@@ -609,6 +842,12 @@ public class MergeRunner implements BackgroundRunner<MultiPartActionResult> {
                     "Merging has finished successfully for the video",
                     "Merging has finished successfully for all %d videos"
             );
+        } else if (unchangedCount == toProcessCount) {
+            warning = Utils.getTextDependingOnCount(
+                    unchangedCount,
+                    "Merging is not needed because the selected subtitles have already been merged",
+                    "Merging is not needed because the selected subtitles have already been merged for all %d videos"
+            );
         } else if (noOverwriteConfirmationCount == toProcessCount) {
             warning = Utils.getTextDependingOnCount(
                     noOverwriteConfirmationCount,
@@ -642,35 +881,46 @@ public class MergeRunner implements BackgroundRunner<MultiPartActionResult> {
              * perfect after that once.
              */
             boolean problemsWithPresentTense = false;
-            if (noOverwriteConfirmationCount != 0) {
+            if (unchangedCount != 0) {
                 if (StringUtils.isBlank(success)) {
                     warning = String.format(
-                            "Merging is not possible for %d/%d videos (no confirmation to file overwriting)",
-                            noOverwriteConfirmationCount,
+                            "Merging is not needed for %d/%d videos (subtitles haven't changed since the last merge)",
+                            unchangedCount,
                             toProcessCount
                     );
                     problemsWithPresentTense = true;
                 } else {
                     warning = String.format(
-                            "is not possible for %d/%d (no confirmation to file overwriting)",
-                            noOverwriteConfirmationCount,
+                            "is not needed for %d/%d (subtitles haven't changed since the last merge)",
+                            unchangedCount,
                             toProcessCount
                     );
                 }
+            }
+
+            /* The videos are skipped as unchanged in both merge modes so the warnings below may follow that one. */
+            String problem = null;
+            int problemCount = 0;
+            if (noOverwriteConfirmationCount != 0) {
+                problem = "no confirmation to file overwriting";
+                problemCount = noOverwriteConfirmationCount;
             } else if (alreadyMergedCount != 0) {
-                if (StringUtils.isBlank(success)) {
+                problem = "subtitles were already merged";
+                problemCount = alreadyMergedCount;
+            }
+
+            if (problem != null) {
+                if (StringUtils.isBlank(success) && StringUtils.isBlank(warning)) {
                     warning = String.format(
-                            "Merging is not possible for %d/%d videos (subtitles were already merged)",
-                            alreadyMergedCount,
-                            toProcessCount
+                            "Merging is not possible for %d/%d videos (%s)",
+                            problemCount,
+                            toProcessCount,
+                            problem
                     );
                     problemsWithPresentTense = true;
                 } else {
-                    warning = String.format(
-                            "is not possible for %d/%d (subtitles were already merged)",
-                            alreadyMergedCount,
-                            toProcessCount
-                    );
+                    warning = StringUtils.isBlank(warning) ? "" : warning + ", ";
+                    warning += String.format("is not possible for %d/%d (%s)", problemCount, toProcessCount, problem);
                 }
             }
 
@@ -714,6 +964,97 @@ public class MergeRunner implements BackgroundRunner<MultiPartActionResult> {
         private ActionResult actionResult;
     }
 
+    /**
+     * Shows the progress of the injection along with the writing speed and the remaining time. Injecting into a large
+     * video can take many minutes and without the progress it's hard to tell whether the application is stuck.
+     */
+    private static class InjectionProgressConsumer implements Consumer<FfmpegInjectProgress> {
+        private long durationMillis;
+
+        private String actionPrefix;
+
+        private BackgroundManager backgroundManager;
+
+        private long startTime;
+
+        InjectionProgressConsumer(long durationMillis, String actionPrefix, BackgroundManager backgroundManager) {
+            this.durationMillis = durationMillis;
+            this.actionPrefix = actionPrefix;
+            this.backgroundManager = backgroundManager;
+
+            startTime = System.nanoTime();
+        }
+
+        @Override
+        public void accept(FfmpegInjectProgress progress) {
+            long processedMillis = Math.min(progress.getProcessedMillis(), durationMillis);
+            backgroundManager.updateProgress(processedMillis, durationMillis);
+
+            String details = getDetails(processedMillis, progress.getProcessedSize());
+            backgroundManager.updateMessage(actionPrefix + "injecting the result into the video" + details + "...");
+        }
+
+        private String getDetails(long processedMillis, long processedSize) {
+            double elapsedSeconds = (System.nanoTime() - startTime) / 1_000_000_000.0;
+
+            /* The estimates are too inaccurate at the very beginning. */
+            if (processedMillis == 0 || elapsedSeconds < 1) {
+                return "";
+            }
+
+            String speed = Utils.getSizeTextual(Math.round(processedSize / elapsedSeconds), true) + "/s";
+
+            double remainingSeconds = elapsedSeconds * (durationMillis - processedMillis) / processedMillis;
+            String remainingTime;
+            if (remainingSeconds < 60) {
+                remainingTime = "less than a minute left";
+            } else {
+                int minutes = (int) Math.ceil(remainingSeconds / 60);
+                remainingTime = Utils.getTextDependingOnCount(minutes, "about a minute left", "about %d minutes left");
+            }
+
+            return " (" + (processedMillis * 100 / durationMillis) + "%, " + speed + ", " + remainingTime + ")";
+        }
+    }
+
+    @Getter
+    private static class Counters {
+        private int processedCount;
+
+        private int successfulCount;
+
+        private int unchangedCount;
+
+        private int noOverwriteConfirmationCount;
+
+        private int alreadyMergedCount;
+
+        private int failedCount;
+
+        /**
+         * Takes into account the result of processing one video, the iteration error is null if the video has been
+         * processed successfully.
+         */
+        void add(@Nullable IterationError iterationError) {
+            if (iterationError == null) {
+                successfulCount++;
+            } else if (iterationError == IterationError.UNCHANGED) {
+                unchangedCount++;
+            } else if (iterationError == IterationError.NO_OVERWRITE_CONFIRMATION) {
+                noOverwriteConfirmationCount++;
+            } else if (iterationError == IterationError.ALREADY_MERGED) {
+                alreadyMergedCount++;
+            } else if (iterationError == IterationError.GENERAL_ERROR) {
+                failedCount++;
+            } else {
+                log.error("unexpected iteration error: " + iterationError + ", most likely a bug");
+                throw new IllegalStateException();
+            }
+
+            processedCount++;
+        }
+    }
+
     @AllArgsConstructor
     @Getter
     private static class BreakIterationException extends Exception {
@@ -721,6 +1062,8 @@ public class MergeRunner implements BackgroundRunner<MultiPartActionResult> {
     }
 
     private enum IterationError {
+        /* Is not thrown, is used only to count the videos skipped according to the merge manifest. */
+        UNCHANGED,
         NO_OVERWRITE_CONFIRMATION,
         ALREADY_MERGED,
         GENERAL_ERROR,
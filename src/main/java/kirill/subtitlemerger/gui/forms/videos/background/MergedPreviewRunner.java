@@ -1,6 +1,5 @@
 package kirill.subtitlemerger.gui.forms.videos.background;
 
-import kirill.subtitlemerger.gui.forms.videos.table.TableSubtitleOption;
 import kirill.subtitlemerger.gui.forms.videos.table.TableVideo;
 import kirill.subtitlemerger.gui.utils.background.BackgroundManager;
 import kirill.subtitlemerger.gui.utils.background.BackgroundRunner;
@@ -9,6 +8,7 @@ import kirill.subtitlemerger.logic.settings.Settings;
 import kirill.subtitlemerger.logic.subtitles.SubRipWriter;
 import kirill.subtitlemerger.logic.subtitles.SubtitleMerger;
 import kirill.subtitlemerger.logic.subtitles.entities.Subtitles;
+import kirill.subtitlemerger.logic.videos.SubtitleCache;
 import kirill.subtitlemerger.logic.videos.entities.BuiltInSubtitleOption;
 import kirill.subtitlemerger.logic.videos.entities.SubtitleOption;
 import kirill.subtitlemerger.logic.videos.entities.Video;
@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static kirill.subtitlemerger.gui.forms.videos.background.VideosBackgroundUtils.getLoadSubtitlesError;
+import static kirill.subtitlemerger.gui.forms.videos.background.VideosBackgroundUtils.getLoadingAction;
 import static kirill.subtitlemerger.gui.forms.videos.background.VideosBackgroundUtils.getLoadingCancelDescription;
 
 @AllArgsConstructor
@@ -32,6 +33,8 @@ public class MergedPreviewRunner implements BackgroundRunner<MergedPreviewRunner
 
     private Ffmpeg ffmpeg;
 
+    private SubtitleCache subtitleCache;
+
     private Settings settings;
 
     public Result run(BackgroundManager backgroundManager) {
@@ -42,7 +45,7 @@ public class MergedPreviewRunner implements BackgroundRunner<MergedPreviewRunner
         SubtitleOption lowerOption = video.getOption(tableVideo.getLowerOption().getId());
 
         try {
-            String loadError = loadSubtitles(video, tableVideo, ffmpeg, backgroundManager);
+            String loadError = loadSubtitles(video, tableVideo, ffmpeg, subtitleCache, backgroundManager);
             if (!StringUtils.isBlank(loadError)) {
                 return new Result(loadError, null);
             }
@@ -61,6 +64,7 @@ public class MergedPreviewRunner implements BackgroundRunner<MergedPreviewRunner
             Video video,
             TableVideo tableVideo,
             Ffmpeg ffmpeg,
+            SubtitleCache subtitleCache,
             BackgroundManager backgroundManager
     ) throws InterruptedException {
         List<BuiltInSubtitleOption> optionsToLoad = getOptionsToLoad(video, tableVideo);
@@ -70,20 +74,18 @@ public class MergedPreviewRunner implements BackgroundRunner<MergedPreviewRunner
 
         backgroundManager.setCancelDescription(getLoadingCancelDescription(video));
 
+        backgroundManager.updateMessage("Preview: " + getLoadingAction(optionsToLoad, video, tableVideo));
+
         int toLoadCount = optionsToLoad.size();
         int incorrectCount = 0;
         int failedCount = 0;
-        for (BuiltInSubtitleOption option : optionsToLoad) {
-            if (Thread.interrupted()) {
-                throw new InterruptedException();
-            }
-
-            TableSubtitleOption tableOption = tableVideo.getOption(option.getId());
-
-            String action = "Preview: loading " + tableOption.getTitle() + " in " + video.getFile().getName() + "...";
-            backgroundManager.updateMessage(action);
-
-            LoadSubtitlesResult loadResult = VideosBackgroundUtils.loadSubtitles(option, video, tableOption, ffmpeg);
+        for (LoadSubtitlesResult loadResult : VideosBackgroundUtils.loadSubtitles(
+                optionsToLoad,
+                video,
+                tableVideo,
+                ffmpeg,
+                subtitleCache
+        )) {
             if (loadResult == LoadSubtitlesResult.INCORRECT_FORMAT) {
                 incorrectCount++;
             } else if (loadResult == LoadSubtitlesResult.FAILED) {
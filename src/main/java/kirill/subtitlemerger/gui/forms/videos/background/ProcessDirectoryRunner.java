@@ -1,28 +1,34 @@
 package kirill.subtitlemerger.gui.forms.videos.background;
 
-import kirill.subtitlemerger.gui.GuiConstants;
+import javafx.application.Platform;
 import kirill.subtitlemerger.gui.forms.videos.table.TableData;
 import kirill.subtitlemerger.gui.forms.videos.table.TableMode;
 import kirill.subtitlemerger.gui.forms.videos.table.TableVideo;
 import kirill.subtitlemerger.gui.forms.videos.table.TableWithVideos;
 import kirill.subtitlemerger.gui.utils.background.BackgroundManager;
 import kirill.subtitlemerger.gui.utils.background.BackgroundRunner;
+import kirill.subtitlemerger.logic.LogicConstants;
+import kirill.subtitlemerger.logic.ffmpeg.Ffmpeg;
 import kirill.subtitlemerger.logic.ffmpeg.Ffprobe;
 import kirill.subtitlemerger.logic.settings.Settings;
 import kirill.subtitlemerger.logic.utils.Utils;
 import kirill.subtitlemerger.logic.utils.file_validation.FileValidator;
+import kirill.subtitlemerger.logic.videos.VideoInfoCache;
 import kirill.subtitlemerger.logic.videos.entities.Video;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.extern.apachecommons.CommonsLog;
+import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
 
 import java.io.File;
-import java.nio.file.InvalidPathException;
-import java.nio.file.Path;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static kirill.subtitlemerger.gui.forms.videos.background.VideosBackgroundUtils.*;
 
@@ -35,36 +41,49 @@ public class ProcessDirectoryRunner implements BackgroundRunner<ProcessDirectory
 
     private Ffprobe ffprobe;
 
+    private VideoInfoCache videoInfoCache;
+
     private Settings settings;
 
     @Override
     public Result run(BackgroundManager backgroundManager) {
-        backgroundManager.setCancelPossible(false);
+        backgroundManager.setCancelPossible(true);
         backgroundManager.setIndeterminateProgress();
         backgroundManager.updateMessage("Getting directory info...");
 
-        DirectoryInfo directoryInfo = getDirectoryInfo(directoryPath, backgroundManager);
-        if (!StringUtils.isBlank(directoryInfo.getNotValidReason())) {
-            return new Result(
-                    directoryInfo.getNotValidReason(),
-                    !directoryInfo.isCanRefresh(),
-                    null,
-                    null,
-                    false,
-                    null
+        TableVideoCollector tableVideoCollector = new TableVideoCollector(new File(directoryPath), table, settings);
+        List<Video> allVideos;
+        try {
+            DirectoryInfo directoryInfo = getDirectoryInfo(directoryPath, settings, backgroundManager);
+            if (!StringUtils.isBlank(directoryInfo.getNotValidReason())) {
+                return new Result(
+                        directoryInfo.getNotValidReason(),
+                        !directoryInfo.isCanRefresh(),
+                        null,
+                        null,
+                        false,
+                        null
+                );
+            }
+
+            allVideos = getVideos(
+                    directoryInfo.getDirectoryFiles(),
+                    ffprobe,
+                    videoInfoCache,
+                    tableVideoCollector,
+                    backgroundManager
             );
+        } catch (InterruptedException e) {
+            return new Result("Processing the directory has been canceled", false, null, null, false, null);
         }
 
-        List<Video> allVideos = getVideos(directoryInfo.getDirectoryFiles(), ffprobe, backgroundManager);
-        List<TableVideo> allTableVideos = tableVideosFrom(
-                allVideos,
-                false,
-                false,
-                table,
-                settings,
+        backgroundManager.setCancelPossible(false);
+
+        List<TableVideo> allTableVideos = getSortedVideos(
+                tableVideoCollector.getTableVideos(),
+                settings.getSort(),
                 backgroundManager
         );
-        allTableVideos = getSortedVideos(allTableVideos, settings.getSort(), backgroundManager);
         boolean hideUnavailable = shouldHideUnavailable(allVideos, backgroundManager);
 
         return new Result(
@@ -83,7 +102,11 @@ public class ProcessDirectoryRunner implements BackgroundRunner<ProcessDirectory
         );
     }
 
-    private static DirectoryInfo getDirectoryInfo(String path, BackgroundManager backgroundManager) {
+    private static DirectoryInfo getDirectoryInfo(
+            String path,
+            Settings settings,
+            BackgroundManager backgroundManager
+    ) throws InterruptedException {
         String shortenedPath = Utils.getShortenedString(path, 0, 64);
 
         if (StringUtils.isBlank(path)) {
@@ -111,26 +134,90 @@ public class ProcessDirectoryRunner implements BackgroundRunner<ProcessDirectory
             return new DirectoryInfo(notValidReason, true, null);
         }
 
-        List<File> directoryFiles = getDirectoryFiles(directory, backgroundManager);
-        if (directoryFiles.size() > GuiConstants.VIDEO_TABLE_LIMIT) {
-            String notValidReason = "The directory has too many videos (>" + GuiConstants.VIDEO_TABLE_LIMIT + ")";
+        int limit = settings.getVideoTableLimit();
+        List<File> directoryFiles = getDirectoryFiles(
+                directory,
+                settings.isIncludeSubdirectories(),
+                limit,
+                backgroundManager
+        );
+        if (directoryFiles.size() > limit) {
+            String notValidReason = "The directory has too many videos (>" + limit + ")";
             return new DirectoryInfo(notValidReason, true, null);
         }
 
         return new DirectoryInfo(null, true, directoryFiles);
     }
 
-    private static List<File> getDirectoryFiles(File directory, BackgroundManager backgroundManager) {
+    /**
+     * Returns regular files of the directory and of its subdirectories if they should be included. With subdirectories
+     * only the files with allowed video extensions are returned, otherwise all the unrelated files of the whole tree
+     * would be shown as unavailable videos and would count towards the limit. The walk stops as soon as there are more
+     * files than the limit because the directory can't be shown anyway in that case. Note that the file tree walker
+     * doesn't request attributes that aren't needed, the attributes of each file are read later only once.
+     */
+    private static List<File> getDirectoryFiles(
+            File directory,
+            boolean includeSubdirectories,
+            int limit,
+            BackgroundManager backgroundManager
+    ) throws InterruptedException {
         backgroundManager.updateMessage("Getting a video list...");
 
-        File[] directoryFiles = directory.listFiles();
-
-        if (directoryFiles == null) {
+        List<File> result = new ArrayList<>();
+        FileVisitor<Path> visitor = new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return FileVisitResult.TERMINATE;
+                }
+
+                if (attributes.isRegularFile() && isCandidate(file.toFile(), includeSubdirectories)) {
+                    result.add(file.toFile());
+                    if (result.size() % 100 == 0) {
+                        backgroundManager.updateMessage("Getting a video list (" + result.size() + " files found)...");
+                    }
+                }
+
+                return result.size() > limit ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                log.warn("failed to visit " + file + ": " + e.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        };
+
+        int maxDepth = includeSubdirectories ? Integer.MAX_VALUE : 1;
+        try {
+            Files.walkFileTree(directory.toPath(), EnumSet.noneOf(FileVisitOption.class), maxDepth, visitor);
+        } catch (IOException e) {
             log.warn("failed to get directory files, directory " + directory.getAbsolutePath());
             return new ArrayList<>();
-        } else {
-            return Arrays.asList(directoryFiles);
         }
+
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+
+        return result;
+    }
+
+    /*
+     * The temporary videos left after a crash are skipped so that they aren't shown and merged as the user's videos.
+     */
+    private static boolean isCandidate(File file, boolean includeSubdirectories) {
+        if (Ffmpeg.isTempVideoFile(file)) {
+            return false;
+        }
+
+        if (!includeSubdirectories) {
+            return true;
+        }
+
+        String extension = FilenameUtils.getExtension(file.getName());
+        return LogicConstants.ALLOWED_VIDEO_EXTENSIONS.contains(extension);
     }
 
     /*
@@ -143,6 +230,52 @@ public class ProcessDirectoryRunner implements BackgroundRunner<ProcessDirectory
         return videos.stream().anyMatch(video -> video.getNotValidReason() == null);
     }
 
+    /**
+     * This class creates table videos as soon as the videos are ready and passes them to the table in batches, so that
+     * the user can see the videos while the rest of the directory is being processed.
+     */
+    private static class TableVideoCollector implements Consumer<Video> {
+        private static final long BATCH_INTERVAL_MILLISECONDS = 250;
+
+        private File directory;
+
+        private TableWithVideos table;
+
+        private Settings settings;
+
+        @Getter
+        private List<TableVideo> tableVideos;
+
+        private List<TableVideo> batch;
+
+        private long lastBatchTime;
+
+        TableVideoCollector(File directory, TableWithVideos table, Settings settings) {
+            this.directory = directory;
+            this.table = table;
+            this.settings = settings;
+
+            tableVideos = new ArrayList<>();
+            batch = new ArrayList<>();
+        }
+
+        @Override
+        public void accept(Video video) {
+            TableVideo tableVideo = tableVideoFrom(video, directory, false, table, settings);
+            tableVideos.add(tableVideo);
+            batch.add(tableVideo);
+
+            long currentTime = System.currentTimeMillis();
+            if (currentTime - lastBatchTime >= BATCH_INTERVAL_MILLISECONDS) {
+                List<TableVideo> videosToAdd = batch;
+                Platform.runLater(() -> table.addPreliminaryVideos(videosToAdd, TableMode.WHOLE_DIRECTORY));
+
+                batch = new ArrayList<>();
+                lastBatchTime = currentTime;
+            }
+        }
+    }
+
     @AllArgsConstructor
     @Getter
     public static class Result {
@@ -1,6 +1,5 @@
 package kirill.subtitlemerger.gui.forms.videos.background;
 
-import kirill.subtitlemerger.gui.GuiConstants;
 import kirill.subtitlemerger.gui.GuiContext;
 import kirill.subtitlemerger.gui.forms.videos.table.TableData;
 import kirill.subtitlemerger.gui.forms.videos.table.TableMode;
@@ -43,15 +42,28 @@ public class ProcessExtraVideoFilesRunner implements BackgroundRunner<ProcessExt
         backgroundManager.setIndeterminateProgress();
         backgroundManager.updateMessage("Processing the videos...");
 
-        List<Video> videosToAdd = VideosBackgroundUtils.getVideos(
-                videoFilesToAdd,
-                context.getFfprobe(),
-                backgroundManager
-        );
+        List<Video> videosToAdd;
+        try {
+            videosToAdd = VideosBackgroundUtils.getVideos(
+                    videoFilesToAdd,
+                    context.getFfprobe(),
+                    context.getVideoInfoCache(),
+                    null,
+                    backgroundManager
+            );
+        } catch (InterruptedException e) {
+            return new Result(
+                    MultiPartActionResult.onlyWarning("The task has been canceled, nothing was done"),
+                    null,
+                    null,
+                    null
+            );
+        }
         removeAlreadyAdded(videosToAdd, allVideosInitial, backgroundManager);
 
-        if (videosToAdd.size() + allVideosInitial.size() > GuiConstants.VIDEO_TABLE_LIMIT) {
-            String error = "There will be too many videos (>" + GuiConstants.VIDEO_TABLE_LIMIT + ")";
+        int limit = context.getSettings().getVideoTableLimit();
+        if (videosToAdd.size() + allVideosInitial.size() > limit) {
+            String error = "There will be too many videos (>" + limit + ")";
             return new Result(
                     MultiPartActionResult.onlyError(error),
                     null,
@@ -62,7 +74,7 @@ public class ProcessExtraVideoFilesRunner implements BackgroundRunner<ProcessExt
 
         List<TableVideo> tableVideosToAdd = VideosBackgroundUtils.tableVideosFrom(
                 videosToAdd,
-                true,
+                null,
                 true,
                 table,
                 context.getSettings(),
@@ -8,11 +8,14 @@ import kirill.subtitlemerger.gui.utils.background.BackgroundManager;
 import kirill.subtitlemerger.gui.utils.background.BackgroundRunner;
 import kirill.subtitlemerger.logic.ffmpeg.Ffprobe;
 import kirill.subtitlemerger.logic.settings.Settings;
+import kirill.subtitlemerger.logic.utils.entities.MultiPartActionResult;
+import kirill.subtitlemerger.logic.videos.VideoInfoCache;
 import kirill.subtitlemerger.logic.videos.entities.Video;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 
 import static kirill.subtitlemerger.gui.forms.videos.background.VideosBackgroundUtils.getSortedVideos;
@@ -26,14 +29,26 @@ public class ProcessVideoFilesRunner implements BackgroundRunner<ProcessVideoFil
 
     private Ffprobe ffprobe;
 
+    private VideoInfoCache videoInfoCache;
+
     private Settings settings;
 
     @Override
     public Result run(BackgroundManager backgroundManager) {
-        List<Video> allVideos = VideosBackgroundUtils.getVideos(videoFiles, ffprobe, backgroundManager);
+        MultiPartActionResult actionResult = MultiPartActionResult.EMPTY;
+
+        List<Video> allVideos;
+        try {
+            allVideos = VideosBackgroundUtils.getVideos(videoFiles, ffprobe, videoInfoCache, null, backgroundManager);
+        } catch (InterruptedException e) {
+            /* The table will be empty but the user will be able to add videos with the corresponding button. */
+            actionResult = MultiPartActionResult.onlyWarning("The task has been canceled, no videos were added");
+            allVideos = new ArrayList<>();
+        }
+
         List<TableVideo> allTableVideos = VideosBackgroundUtils.tableVideosFrom(
                 allVideos,
-                true,
+                null,
                 true,
                 table,
                 settings,
@@ -42,6 +57,7 @@ public class ProcessVideoFilesRunner implements BackgroundRunner<ProcessVideoFil
         allTableVideos = getSortedVideos(allTableVideos, settings.getSort(), backgroundManager);
 
         return new Result(
+                actionResult,
                 allVideos,
                 allTableVideos,
                 getTableData(
@@ -57,6 +73,8 @@ public class ProcessVideoFilesRunner implements BackgroundRunner<ProcessVideoFil
     @AllArgsConstructor
     @Getter
     public static class Result {
+        private MultiPartActionResult actionResult;
+
         private List<Video> allVideos;
 
         private List<TableVideo> allTableVideos;
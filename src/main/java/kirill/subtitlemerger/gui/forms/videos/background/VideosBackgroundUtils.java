@@ -9,6 +9,7 @@ import kirill.subtitlemerger.logic.LogicConstants;
 import kirill.subtitlemerger.logic.ffmpeg.Ffmpeg;
 import kirill.subtitlemerger.logic.ffmpeg.FfmpegException;
 import kirill.subtitlemerger.logic.ffmpeg.Ffprobe;
+import kirill.subtitlemerger.logic.settings.MergeMode;
 import kirill.subtitlemerger.logic.settings.Settings;
 import kirill.subtitlemerger.logic.settings.Sort;
 import kirill.subtitlemerger.logic.settings.SortBy;
@@ -16,8 +17,12 @@ import kirill.subtitlemerger.logic.settings.SortDirection;
 import kirill.subtitlemerger.logic.subtitles.entities.SubtitlesAndInput;
 import kirill.subtitlemerger.logic.utils.Utils;
 import kirill.subtitlemerger.logic.utils.entities.MultiPartActionResult;
+import kirill.subtitlemerger.logic.videos.MergeManifest;
+import kirill.subtitlemerger.logic.videos.SubtitleCache;
+import kirill.subtitlemerger.logic.videos.VideoInfoCache;
 import kirill.subtitlemerger.logic.videos.Videos;
 import kirill.subtitlemerger.logic.videos.entities.BuiltInSubtitleOption;
+import kirill.subtitlemerger.logic.videos.entities.SubtitleOption;
 import kirill.subtitlemerger.logic.videos.entities.SubtitleOptionNotValidReason;
 import kirill.subtitlemerger.logic.videos.entities.Video;
 import kirill.subtitlemerger.logic.videos.entities.VideoNotValidReason;
@@ -27,45 +32,150 @@ import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @CommonsLog
 public class VideosBackgroundUtils {
     static final String INCORRECT_FORMAT = "The subtitles have an incorrect format";
 
-    static List<Video> getVideos(List<File> files, Ffprobe ffprobe, BackgroundManager backgroundManager) {
+    /**
+     * Returns videos for the given files in the same order, files that don't exist or are not regular files are
+     * skipped. The attributes of each file are read only once and are kept in the video afterwards. Video info is
+     * obtained with several ffprobe processes at the same time because starting a process and reading the beginning of
+     * a file take much longer than everything else, especially for network drives. The method can be canceled, in that
+     * case all the ffprobe processes are stopped and an InterruptedException is thrown.
+     *
+     * @param videoConsumer if not null, gets each video as soon as it's ready (in the current thread), so the videos
+     * can be shown before all of them are processed.
+     */
+    static List<Video> getVideos(
+            List<File> files,
+            Ffprobe ffprobe,
+            VideoInfoCache videoInfoCache,
+            @Nullable Consumer<Video> videoConsumer,
+            BackgroundManager backgroundManager
+    ) throws InterruptedException {
         backgroundManager.saveCurrentTaskState();
 
-        backgroundManager.setCancelPossible(false);
+        backgroundManager.setCancelPossible(true);
+        backgroundManager.setCancelDescription(null);
         backgroundManager.updateProgress(0, files.size());
+        backgroundManager.updateMessage("Getting video info...");
+
+        int threadCount = Math.max(1, Math.min(files.size(), GuiConstants.VIDEO_INFO_THREAD_COUNT));
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        CompletionService<Video> completionService = new ExecutorCompletionService<>(executor);
 
         List<Video> result = new ArrayList<>();
+        try {
+            /* Videos are stored by the indices of their files so that the result has the same order as the files. */
+            Video[] videos = new Video[files.size()];
+            for (int i = 0; i < files.size(); i++) {
+                File file = files.get(i);
+                int index = i;
+                completionService.submit(() -> {
+                    BasicFileAttributes attributes = getFileAttributes(file);
+                    if (attributes == null || !attributes.isRegularFile()) {
+                        return null;
+                    }
 
-        int i = 0;
-        for (File file : files) {
-            backgroundManager.updateMessage("Getting video info for " + file.getName() + "...");
+                    videos[index] = Videos.getVideo(
+                            file,
+                            attributes,
+                            LogicConstants.ALLOWED_VIDEO_EXTENSIONS,
+                            ffprobe,
+                            videoInfoCache
+                    );
+                    return videos[index];
+                });
+            }
 
-            if (file.isFile() && file.exists()) {
-                result.add(Videos.getVideo(file, LogicConstants.ALLOWED_VIDEO_EXTENSIONS, ffprobe));
+            for (int i = 0; i < files.size(); i++) {
+                Video video = getCompletedVideo(completionService);
+                if (video != null && videoConsumer != null) {
+                    videoConsumer.accept(video);
+                }
+                backgroundManager.updateProgress(i + 1, files.size());
+            }
+
+            /* All the tasks have been taken from the completion service, so their writes are visible here. */
+            for (Video video : videos) {
+                if (video != null) {
+                    result.add(video);
+                }
             }
+        } finally {
+            /*
+             * The workers have to finish before returning, otherwise after canceling they could still be writing to the
+             * array and to the cache.
+             */
+            executor.shutdownNow();
+            waitForTermination(executor);
+
+            backgroundManager.restoreSavedTaskState();
+        }
 
-            backgroundManager.updateProgress(i + 1, files.size());
+        return result;
+    }
 
-            i++;
+    /**
+     * Waits for the workers of the executor that has been shut down. The method is called either after the tasks have
+     * finished or when the current thread has been interrupted, in the latter case the thread can't be interrupted
+     * again because the task can be canceled only once.
+     */
+    static void waitForTermination(ExecutorService executor) {
+        try {
+            if (!executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS)) {
+                log.error("workers haven't finished, most likely a bug");
+                throw new IllegalStateException();
+            }
+        } catch (InterruptedException e) {
+            log.error("the process can't be interrupted twice, most likely a bug");
+            throw new IllegalStateException();
         }
+    }
 
-        backgroundManager.restoreSavedTaskState();
+    @Nullable
+    private static BasicFileAttributes getFileAttributes(File file) {
+        try {
+            return Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        } catch (IOException e) {
+            /* It's not an error since the file can be removed after it has been selected. */
+            log.debug("failed to read attributes of " + file.getAbsolutePath() + ": " + e.getMessage());
+            return null;
+        }
+    }
 
-        return result;
+    @Nullable
+    private static Video getCompletedVideo(CompletionService<Video> completionService) throws InterruptedException {
+        try {
+            return completionService.take().get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof InterruptedException) {
+                throw (InterruptedException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else {
+                log.error("unexpected exception while getting video info: " + e.getCause() + ", most likely a bug");
+                throw new IllegalStateException();
+            }
+        }
     }
 
+    /**
+     * @param directory the directory the videos belong to, paths are shown relative to it, if it's null then full paths
+     * are shown.
+     */
     static List<TableVideo> tableVideosFrom(
             List<Video> videos,
-            boolean showFullPath,
+            @Nullable File directory,
             boolean selectByDefault,
             TableWithVideos table,
             Settings settings,
@@ -81,7 +191,7 @@ public class VideosBackgroundUtils {
         for (Video video : videos) {
             backgroundManager.updateMessage("Creating an object for " + video.getFile().getName() + "...");
 
-            result.add(tableVideoFrom(video, showFullPath, selectByDefault, table, settings));
+            result.add(tableVideoFrom(video, directory, selectByDefault, table, settings));
         }
 
         backgroundManager.restoreSavedTaskState();
@@ -89,14 +199,19 @@ public class VideosBackgroundUtils {
         return result;
     }
 
-    private static TableVideo tableVideoFrom(
+    static TableVideo tableVideoFrom(
             Video video,
-            boolean showFullPath,
+            @Nullable File directory,
             boolean selected,
             TableWithVideos table,
             Settings settings
     ) {
-        String pathToDisplay = showFullPath ? video.getFile().getAbsolutePath() : video.getFile().getName();
+        String pathToDisplay;
+        if (directory != null) {
+            pathToDisplay = directory.toPath().relativize(video.getFile().toPath()).toString();
+        } else {
+            pathToDisplay = video.getFile().getAbsolutePath();
+        }
 
         TableVideo result = new TableVideo(
                 video.getId(),
@@ -393,24 +508,125 @@ public class VideosBackgroundUtils {
             BuiltInSubtitleOption option,
             Video video,
             TableSubtitleOption tableOption,
-            Ffmpeg ffmpeg
+            Ffmpeg ffmpeg,
+            SubtitleCache subtitleCache
     ) throws InterruptedException {
-        try {
-            byte[] rawSubtitles = ffmpeg.getSubtitles(option.getFfmpegIndex(), video.getFile());
+        return loadSubtitles(Collections.singletonList(option), video, tableOption.getVideo(), ffmpeg, subtitleCache)
+                .get(0);
+    }
+
+    /**
+     * Loads subtitles for all the given options of the video. The subtitles that aren't in the cache are extracted
+     * with one ffmpeg call because otherwise ffmpeg would read the whole video for each of the options.
+     *
+     * @return results for the options in the same order as the options.
+     */
+    public static List<LoadSubtitlesResult> loadSubtitles(
+            List<BuiltInSubtitleOption> options,
+            Video video,
+            TableVideo tableVideo,
+            Ffmpeg ffmpeg,
+            SubtitleCache subtitleCache
+    ) throws InterruptedException {
+        Map<Integer, byte[]> allRawSubtitles = new HashMap<>();
+
+        List<Integer> indicesToExtract = new ArrayList<>();
+        for (BuiltInSubtitleOption option : options) {
+            byte[] rawSubtitles = subtitleCache.get(
+                    video.getFile(),
+                    video.getSize(),
+                    video.getLastModifiedMillis(),
+                    option.getFfmpegIndex()
+            );
+            if (rawSubtitles != null) {
+                allRawSubtitles.put(option.getFfmpegIndex(), rawSubtitles);
+            } else {
+                indicesToExtract.add(option.getFfmpegIndex());
+            }
+        }
+
+        Map<Integer, byte[]> extractedSubtitles = extractSubtitles(indicesToExtract, video, ffmpeg);
+        for (Map.Entry<Integer, byte[]> indexAndSubtitles : extractedSubtitles.entrySet()) {
+            subtitleCache.put(
+                    video.getFile(),
+                    video.getSize(),
+                    video.getLastModifiedMillis(),
+                    indexAndSubtitles.getKey(),
+                    indexAndSubtitles.getValue()
+            );
+        }
+        allRawSubtitles.putAll(extractedSubtitles);
+
+        List<LoadSubtitlesResult> result = new ArrayList<>();
+        for (BuiltInSubtitleOption option : options) {
+            TableSubtitleOption tableOption = tableVideo.getOption(option.getId());
+
+            byte[] rawSubtitles = allRawSubtitles.get(option.getFfmpegIndex());
+            if (rawSubtitles == null) {
+                Platform.runLater(() -> tableOption.failedToLoad("Ffmpeg returned an error"));
+                result.add(LoadSubtitlesResult.FAILED);
+                continue;
+            }
+
             SubtitlesAndInput subtitlesAndInput = SubtitlesAndInput.from(rawSubtitles, StandardCharsets.UTF_8);
 
             option.setSubtitlesAndInput(subtitlesAndInput);
             if (subtitlesAndInput.isCorrectFormat()) {
                 Platform.runLater(() -> tableOption.loadedSuccessfully(subtitlesAndInput.getSize(), null));
-                return LoadSubtitlesResult.SUCCESS;
+                result.add(LoadSubtitlesResult.SUCCESS);
             } else {
                 Platform.runLater(() -> tableOption.loadedSuccessfully(subtitlesAndInput.getSize(), INCORRECT_FORMAT));
-                return LoadSubtitlesResult.INCORRECT_FORMAT;
+                result.add(LoadSubtitlesResult.INCORRECT_FORMAT);
             }
+        }
+
+        return result;
+    }
+
+    /*
+     * Returns the subtitles that have been extracted successfully. If ffmpeg fails to extract several streams at once
+     * the streams are extracted one by one so that one broken stream doesn't prevent the others from being loaded.
+     */
+    private static Map<Integer, byte[]> extractSubtitles(
+            List<Integer> ffmpegStreamIndices,
+            Video video,
+            Ffmpeg ffmpeg
+    ) throws InterruptedException {
+        if (CollectionUtils.isEmpty(ffmpegStreamIndices)) {
+            return new HashMap<>();
+        }
+
+        try {
+            return ffmpeg.getSubtitles(ffmpegStreamIndices, video.getFile());
         } catch (FfmpegException e) {
             log.warn("failed to get subtitles: " + e.getCode() + ", console output " + e.getConsoleOutput());
-            Platform.runLater(() -> tableOption.failedToLoad("Ffmpeg returned an error"));
-            return LoadSubtitlesResult.FAILED;
+        }
+
+        Map<Integer, byte[]> result = new HashMap<>();
+        if (ffmpegStreamIndices.size() == 1) {
+            return result;
+        }
+
+        for (int ffmpegStreamIndex : ffmpegStreamIndices) {
+            try {
+                result.put(ffmpegStreamIndex, ffmpeg.getSubtitles(ffmpegStreamIndex, video.getFile()));
+            } catch (FfmpegException e) {
+                log.warn("failed to get subtitles: " + e.getCode() + ", console output " + e.getConsoleOutput());
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the text for the progress message while loading subtitles for the given options of the video.
+     */
+    public static String getLoadingAction(List<BuiltInSubtitleOption> options, Video video, TableVideo tableVideo) {
+        if (options.size() == 1) {
+            TableSubtitleOption tableOption = tableVideo.getOption(options.get(0).getId());
+            return "loading " + tableOption.getTitle() + " in " + video.getFile().getName() + "...";
+        } else {
+            return "loading " + options.size() + " subtitles in " + video.getFile().getName() + "...";
         }
     }
 
@@ -442,6 +658,70 @@ public class VideosBackgroundUtils {
         return result;
     }
 
+    /**
+     * Returns the fingerprint of merging the given options for the merge manifest or null if it can't be calculated
+     * without loading the subtitles with ffmpeg.
+     */
+    @Nullable
+    static String getMergeFingerprint(
+            Video video,
+            SubtitleOption upperOption,
+            SubtitleOption lowerOption,
+            Settings settings,
+            SubtitleCache subtitleCache
+    ) {
+        String upperInputHash = getInputHash(video, upperOption, subtitleCache);
+        String lowerInputHash = getInputHash(video, lowerOption, subtitleCache);
+        if (upperInputHash == null || lowerInputHash == null) {
+            return null;
+        }
+
+        return MergeManifest.getFingerprint(upperInputHash, lowerInputHash, settings.isPlainTextSubtitles());
+    }
+
+    @Nullable
+    private static String getInputHash(Video video, SubtitleOption option, SubtitleCache subtitleCache) {
+        SubtitlesAndInput subtitlesAndInput = option.getSubtitlesAndInput();
+        if (subtitlesAndInput != null) {
+            return MergeManifest.getInputHash(subtitlesAndInput.getRawData(), subtitlesAndInput.getEncoding());
+        }
+
+        /* Built-in subtitles are always loaded in UTF-8, see the loadSubtitles method. */
+        if (option instanceof BuiltInSubtitleOption) {
+            int ffmpegIndex = ((BuiltInSubtitleOption) option).getFfmpegIndex();
+            byte[] rawSubtitles = subtitleCache.get(
+                    video.getFile(),
+                    video.getSize(),
+                    video.getLastModifiedMillis(),
+                    ffmpegIndex
+            );
+            if (rawSubtitles != null) {
+                return MergeManifest.getInputHash(rawSubtitles, StandardCharsets.UTF_8);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the file the result of merging is written to - either the video itself or a separate subtitle file.
+     */
+    static File getMergeOutputFile(
+            Video video,
+            SubtitleOption upperOption,
+            SubtitleOption lowerOption,
+            Settings settings
+    ) {
+        if (settings.getMergeMode() == MergeMode.ORIGINAL_VIDEOS) {
+            return video.getFile();
+        } else if (settings.getMergeMode() == MergeMode.SEPARATE_SUBTITLE_FILES) {
+            return new File(Utils.getMergedSubtitleFilePath(video, upperOption, lowerOption));
+        } else {
+            log.error("unexpected merge mode: " + settings.getMergeMode() + ", most likely a bug");
+            throw new IllegalStateException();
+        }
+    }
+
     public static MultiPartActionResult getLoadSubtitlesResult(
             int toLoadCount,
             int processedCount,
@@ -22,6 +22,7 @@ import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
@@ -684,6 +685,21 @@ public class TableWithVideos extends TableView<TableVideo> {
         }
     }
 
+    /**
+     * Adds videos to the end of the table while the rest of the videos are still being processed so that the user can
+     * see them right away. The table should be cleared beforehand and the complete data should be set with the setData
+     * method afterwards because neither the counters nor the sorting are updated here.
+     */
+    public void addPreliminaryVideos(List<TableVideo> videos, TableMode mode) {
+        /* After clearing the table the items list is immutable. */
+        if (getItems().isEmpty()) {
+            setItems(FXCollections.observableArrayList());
+        }
+
+        getItems().addAll(videos);
+        this.mode = mode;
+    }
+
     public void clearTable() {
         cellCache.clear();
 
@@ -1,7 +1,9 @@
 package kirill.subtitlemerger.logic;
 
 import com.neovisionaries.i18n.LanguageAlpha3Code;
+import org.apache.commons.lang3.SystemUtils;
 
+import java.io.File;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
@@ -16,6 +18,31 @@ public class LogicConstants {
 
     public static final int INPUT_SUBTITLE_FILE_LIMIT_MEGABYTES = 10;
 
+    /**
+     * The directory for the data that is kept between launches only to make the application faster, so it can be
+     * safely removed at any time.
+     */
+    public static final File CACHE_DIRECTORY = new File(SystemUtils.USER_HOME, ".subtitle-merger/cache");
+
+    /**
+     * Ffprobe output for a video usually takes several kilobytes so this size is enough for tens of thousands of videos.
+     */
+    public static final long VIDEO_INFO_CACHE_SIZE = 128 * 1024 * 1024L;
+
+    /**
+     * Processed subtitles take up to several hundred kilobytes, so the memory part of the cache holds dozens of texts
+     * which is enough for one merge and the disk part holds them for hundreds of videos.
+     */
+    public static final long PROCESSED_SUBTITLE_MEMORY_CACHE_SIZE = 16 * 1024 * 1024L;
+
+    public static final long PROCESSED_SUBTITLE_DISK_CACHE_SIZE = 128 * 1024 * 1024L;
+
+    /**
+     * An entry of the merge manifest usually takes less than a kilobyte so this size is enough for tens of thousands
+     * of videos.
+     */
+    public static final long MERGE_MANIFEST_SIZE = 16 * 1024 * 1024L;
+
     public static final List<LanguageAlpha3Code> ALLOWED_LANGUAGES = getAllowedLanguages();
 
     public static final List<Charset> ALLOWED_ENCODINGS = Arrays.asList(
@@ -4,48 +4,69 @@ import kirill.subtitlemerger.logic.subtitles.entities.SubtitleFormat;
 import kirill.subtitlemerger.logic.utils.process.ProcessException;
 import kirill.subtitlemerger.logic.utils.process.ProcessRunner;
 import lombok.extern.apachecommons.CommonsLog;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.lang3.SystemUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.jetbrains.annotations.Nullable;
 
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 @CommonsLog
 public class Ffmpeg {
-    private static final File TEMP_SUBTITLE_FILE = new File(
-            SystemUtils.JAVA_IO_TMPDIR,
-            "subtitle_merger_temp." + SubtitleFormat.SUB_RIP.getExtensions().get(0)
-    );
+    /**
+     * The name of the stream tag with the digest of the injected subtitles, it makes it possible to compare the merged
+     * subtitles without extracting them from the video. Matroska tag names are usually upper case so it's upper case
+     * too, but it's better to search for it ignoring the case.
+     */
+    public static final String SUBTITLE_DIGEST_TAG = "SUBTITLE_MERGER_DIGEST";
+
+    private static final String TEMP_SUBTITLE_FILE_PREFIX = "subtitle_merger_temp_";
 
-    private static final File TEMP_CLEAN_SUBTITLE_FILE = new File(
-            SystemUtils.JAVA_IO_TMPDIR,
-            "subtitle_merger_temp_clean." + SubtitleFormat.SUB_RIP.getExtensions().get(0)
-    );
+    private static final String TEMP_SUBTITLE_FILE_SUFFIX = "." + SubtitleFormat.SUB_RIP.getExtensions().get(0);
+
+    /*
+     * Temporary videos are created next to the videos of the user, so they are hidden on Unix-like systems with the
+     * leading dot and can be recognized by the prefix if they are left after a crash (see isTempVideoFile). The hidden
+     * attribute isn't set on Windows because the temporary video replaces the original one and would keep it.
+     */
+    private static final String TEMP_VIDEO_FILE_PREFIX = ".subtitle_merger_";
 
     private File ffmpegFile;
 
     /*
-     * During a merge this class creates a temporary video file and it is usually removed in the finally block. However,
-     * when the main window is closed finally blocks aren't called so we have to remember this file and remove it in the
+     * Each call uses its own temporary files so that several calls can be made at the same time, even from different
+     * instances of the application. The files are removed in finally blocks. However, when the main window is closed
+     * finally blocks aren't called so we have to remember all the current temporary files and remove them in the
      * close() method.
      */
-    private File currentTempVideoFile;
+    private Set<File> currentTempFiles;
 
     public Ffmpeg(File ffmpegFile) throws FfmpegException, InterruptedException {
         validate(ffmpegFile);
 
         this.ffmpegFile = ffmpegFile;
+        currentTempFiles = ConcurrentHashMap.newKeySet();
     }
 
     private static void validate(File ffmpegFile) throws FfmpegException, InterruptedException {
+        if (ValidatedExecutables.contains(ffmpegFile)) {
+            return;
+        }
+
         try {
             List<String> arguments = Arrays.asList(
                     ffmpegFile.getAbsolutePath(),
@@ -56,47 +77,157 @@ public class Ffmpeg {
             if (!consoleOutput.startsWith("ffmpeg version")) {
                 throw new FfmpegException(FfmpegException.Code.INCORRECT_FFMPEG_PATH, consoleOutput);
             }
+
+            ValidatedExecutables.add(ffmpegFile);
         } catch (ProcessException e) {
             throw new FfmpegException(FfmpegException.Code.INCORRECT_FFMPEG_PATH, e.getConsoleOutput());
         }
     }
 
-    /*
-     * Synchronized because we use one temporary file with subtitles.
+    /**
+     * Returns the string that identifies the ffmpeg executable (its path, size and modification time), it changes when
+     * the executable is replaced with another version. Can be used for caching the results that depend on ffmpeg.
+     */
+    public String getExecutableKey() {
+        return ValidatedExecutables.getKey(ffmpegFile);
+    }
+
+    /**
+     * Extracts one subtitle stream. The subtitles are read directly from the standard output of ffmpeg so there are no
+     * temporary files involved.
      */
-    public synchronized byte[] getSubtitles(
-            int ffmpegStreamIndex,
+    public byte[] getSubtitles(int ffmpegStreamIndex, File videoFile) throws FfmpegException, InterruptedException {
+        List<String> arguments = Arrays.asList(
+                ffmpegFile.getAbsolutePath(),
+                "-i",
+                videoFile.getAbsolutePath(),
+                "-map",
+                "0:" + ffmpegStreamIndex,
+                "-c",
+                "subrip", // A temporary solution until there is a full support of other codecs.
+                "-f",
+                "srt",
+                "pipe:1"
+        );
+
+        return getPipedOutput(arguments, null);
+    }
+
+    /**
+     * Extracts several subtitle streams at once. It's much faster than extracting them one by one because ffmpeg has to
+     * read the whole video to extract even one stream, so this way the video is read only once. Note that if ffmpeg
+     * fails to convert at least one of the streams the whole call fails. Unlike the method above this one needs
+     * temporary files because there is only one standard output and each stream requires its own output.
+     *
+     * @return raw subtitles for each of the given stream indices.
+     */
+    public Map<Integer, byte[]> getSubtitles(
+            List<Integer> ffmpegStreamIndices,
             File videoFile
     ) throws FfmpegException, InterruptedException {
-        String consoleOutput;
+        if (ffmpegStreamIndices.size() == 1) {
+            int ffmpegStreamIndex = ffmpegStreamIndices.get(0);
+            return Collections.singletonMap(ffmpegStreamIndex, getSubtitles(ffmpegStreamIndex, videoFile));
+        }
+
+        Map<Integer, File> subtitleFiles = new LinkedHashMap<>();
+
         try {
-            List<String> arguments = new ArrayList<>(
-                    Arrays.asList(
-                            ffmpegFile.getAbsolutePath(),
-                            "-y",
-                            "-i",
-                            videoFile.getAbsolutePath(),
-                            "-map",
-                            "0:" + ffmpegStreamIndex,
-                            "-c",
-                            "subrip", // A temporary solution until there is a full support of other codecs.
-                            TEMP_SUBTITLE_FILE.getAbsolutePath()
-                    )
-            );
+            for (int ffmpegStreamIndex : ffmpegStreamIndices) {
+                subtitleFiles.put(ffmpegStreamIndex, createTempSubtitleFile());
+            }
+
+            String consoleOutput;
+            try {
+                List<String> arguments = new ArrayList<>(
+                        Arrays.asList(
+                                ffmpegFile.getAbsolutePath(),
+                                "-y",
+                                "-i",
+                                videoFile.getAbsolutePath()
+                        )
+                );
+
+                /* Each stream goes to its own output, options before an output are applied only to that output. */
+                for (Map.Entry<Integer, File> streamAndFile : subtitleFiles.entrySet()) {
+                    arguments.addAll(
+                            Arrays.asList(
+                                    "-map",
+                                    "0:" + streamAndFile.getKey(),
+                                    "-c",
+                                    "subrip", // A temporary solution until there is a full support of other codecs.
+                                    streamAndFile.getValue().getAbsolutePath()
+                            )
+                    );
+                }
+
+                consoleOutput = ProcessRunner.run(arguments);
+            } catch (ProcessException e) {
+                throw new FfmpegException(FfmpegException.Code.PROCESS_FAILED, e.getConsoleOutput());
+            }
+
+            Map<Integer, byte[]> result = new HashMap<>();
+            for (Map.Entry<Integer, File> streamAndFile : subtitleFiles.entrySet()) {
+                try {
+                    result.put(streamAndFile.getKey(), FileUtils.readFileToByteArray(streamAndFile.getValue()));
+                } catch (IOException e) {
+                    log.warn("failed to read subtitles from video: " + ExceptionUtils.getStackTrace(e));
+                    throw new FfmpegException(FfmpegException.Code.FAILED_TO_READ_TEMP_SUBTITLE_FILE, consoleOutput);
+                }
+            }
+
+            return result;
+        } finally {
+            for (File subtitleFile : subtitleFiles.values()) {
+                deleteTempFile(subtitleFile);
+            }
+        }
+    }
 
-            consoleOutput = ProcessRunner.run(arguments);
+    /*
+     * Runs ffmpeg that writes its only output to the standard output (pipe:1) and returns that output.
+     */
+    private static byte[] getPipedOutput(
+            List<String> arguments,
+            @Nullable byte[] input
+    ) throws FfmpegException, InterruptedException {
+        try {
+            return ProcessRunner.run(arguments, input, inputStream -> IOUtils.toByteArray(inputStream));
         } catch (ProcessException e) {
             throw new FfmpegException(FfmpegException.Code.PROCESS_FAILED, e.getConsoleOutput());
         }
+    }
+
+    private File createTempSubtitleFile() throws FfmpegException {
+        try {
+            File result = Files.createTempFile(TEMP_SUBTITLE_FILE_PREFIX, TEMP_SUBTITLE_FILE_SUFFIX).toFile();
+            currentTempFiles.add(result);
+            return result;
+        } catch (IOException e) {
+            log.warn("failed to create temp subtitle file: " + ExceptionUtils.getStackTrace(e));
+            throw new FfmpegException(FfmpegException.Code.FAILED_TO_CREATE_TEMP_SUBTITLE_FILE, null);
+        }
+    }
 
+    private File createTempVideoFile(File directory, File originalVideoFile) throws FfmpegException {
+        String suffix = "." + FilenameUtils.getExtension(originalVideoFile.getName());
         try {
-            return FileUtils.readFileToByteArray(TEMP_SUBTITLE_FILE);
+            Path result = Files.createTempFile(directory.toPath(), TEMP_VIDEO_FILE_PREFIX, suffix);
+            currentTempFiles.add(result.toFile());
+            return result.toFile();
         } catch (IOException e) {
-            log.warn("failed to read subtitles from video: " + ExceptionUtils.getStackTrace(e));
-            throw new FfmpegException(FfmpegException.Code.FAILED_TO_READ_TEMP_SUBTITLE_FILE, consoleOutput);
+            log.warn("failed to create temp video file: " + ExceptionUtils.getStackTrace(e));
+            throw new FfmpegException(FfmpegException.Code.FAILED_TO_CREATE_TEMP_VIDEO, null);
         }
     }
 
+    private void deleteTempFile(File file) {
+        if (file.exists() && !file.delete()) {
+            log.warn("failed to delete the temporary file " + file.getAbsolutePath());
+        }
+        currentTempFiles.remove(file);
+    }
+
     /**
      * This method takes an unprocessed text with subtitles and returns a version processed by ffmpeg. It's very
      * important since ffmpeg makes its own transformations and it's hard to guess which exactly. For example it
@@ -104,99 +235,174 @@ public class Ffmpeg {
      * <font face="Franklin Gothic Medium"><font size="63"><font color="#f4f4f4">. So it's the most reliable way of
      * knowing how ffmpeg changes the text. Knowing that will help to check for duplicates before injecting.
      */
-    /*
-     * Synchronized because we use shared temporary files.
-     */
-    public synchronized byte[] getProcessedSubtitles(
+    public byte[] getProcessedSubtitles(
             String originalText,
             String codec
     ) throws FfmpegException, InterruptedException {
-        try {
-            FileUtils.writeStringToFile(TEMP_SUBTITLE_FILE, originalText, StandardCharsets.UTF_8);
-        } catch (IOException e) {
-            log.warn("failed to create temp subtitle file: " + ExceptionUtils.getStackTrace(e));
-            throw new FfmpegException(FfmpegException.Code.FAILED_TO_CREATE_TEMP_SUBTITLE_FILE, null);
-        }
-
-        String consoleOutput;
-        try {
-            List<String> arguments = new ArrayList<>(
-                    Arrays.asList(
-                            ffmpegFile.getAbsolutePath(),
-                            "-y",
-                            "-i",
-                            TEMP_SUBTITLE_FILE.getAbsolutePath(),
-                            "-map",
-                            "0",
-                            "-c",
-                            codec,
-                            TEMP_CLEAN_SUBTITLE_FILE.getAbsolutePath()
-                    )
-            );
-
-            consoleOutput = ProcessRunner.run(arguments);
-        } catch (ProcessException e) {
-            throw new FfmpegException(FfmpegException.Code.PROCESS_FAILED, e.getConsoleOutput());
-        }
+        /* The text is passed through pipes in both directions so there is no need in temporary files. */
+        List<String> arguments = Arrays.asList(
+                ffmpegFile.getAbsolutePath(),
+                "-f",
+                "srt",
+                "-i",
+                "pipe:0",
+                "-map",
+                "0",
+                "-c",
+                codec,
+                "-f",
+                "srt",
+                "pipe:1"
+        );
 
-        try {
-            return FileUtils.readFileToByteArray(TEMP_CLEAN_SUBTITLE_FILE);
-        } catch (IOException e) {
-            log.warn("failed to read clean subtitles: " + ExceptionUtils.getStackTrace(e));
-            throw new FfmpegException(FfmpegException.Code.FAILED_TO_READ_TEMP_SUBTITLE_FILE, consoleOutput);
-        }
+        return getPipedOutput(arguments, originalText.getBytes(StandardCharsets.UTF_8));
     }
 
-    /*
-     * Synchronized because we use one temporary file with subtitles.
+    /**
+     * Injects the subtitles into the video. If the consumer is provided, the progress is passed to it while ffmpeg is
+     * working (about twice a second), note that it's called from another thread.
      */
-    public synchronized void injectSubtitlesToFile(
-            FfmpegInjectInfo injectInfo
+    public void injectSubtitlesToFile(
+            FfmpegInjectInfo injectInfo,
+            @Nullable Consumer<FfmpegInjectProgress> progressConsumer
     ) throws FfmpegException, InterruptedException {
-        try {
-            FileUtils.writeStringToFile(TEMP_SUBTITLE_FILE, injectInfo.getSubtitles(), StandardCharsets.UTF_8);
-        } catch (IOException e) {
-            log.warn("failed to write merged subtitles to temporary file: " + ExceptionUtils.getStackTrace(e));
-            throw new FfmpegException(FfmpegException.Code.FAILED_TO_CREATE_TEMP_SUBTITLE_FILE, null);
+        if (CollectionUtils.isEmpty(injectInfo.getSubtitles())) {
+            log.error("there are no subtitles to inject, most likely a bug");
+            throw new IllegalStateException();
         }
 
-        /*
-         * Ffmpeg can't add subtitles on the fly. So we need to add subtitles to some temporary file and then rename it.
-         */
-        File tempVideoFile = new File(
-                injectInfo.getTempVideoDirectory(),
-                "temp_" + injectInfo.getOriginalVideoFile().getName()
-        );
+        List<File> subtitleFiles = new ArrayList<>();
+        File tempVideoFile = null;
 
         try {
-            String consoleOutput;
+            /*
+             * Ffmpeg can't add subtitles on the fly. So we need to add subtitles to some temporary file and then rename
+             * it. The file is unique for each call so that injections running at the same time don't interfere.
+             */
+            tempVideoFile = createTempVideoFile(injectInfo.getTempVideoDirectory(), injectInfo.getOriginalVideoFile());
+
+            for (FfmpegInjectSubtitles subtitles : injectInfo.getSubtitles()) {
+                File subtitleFile = createTempSubtitleFile();
+                subtitleFiles.add(subtitleFile);
+
+                try {
+                    FileUtils.writeStringToFile(subtitleFile, subtitles.getText(), StandardCharsets.UTF_8);
+                } catch (IOException e) {
+                    log.warn("failed to write merged subtitles to temporary file: " + ExceptionUtils.getStackTrace(e));
+                    throw new FfmpegException(FfmpegException.Code.FAILED_TO_CREATE_TEMP_SUBTITLE_FILE, null);
+                }
+            }
+
             try {
-                List<String> arguments = getArgumentsInjectToFile(injectInfo, tempVideoFile);
-                currentTempVideoFile = tempVideoFile;
-                consoleOutput = ProcessRunner.run(arguments);
+                List<String> arguments = getArgumentsInjectToFile(
+                        ffmpegFile,
+                        injectInfo,
+                        subtitleFiles,
+                        tempVideoFile,
+                        progressConsumer != null
+                );
+
+                /*
+                 * The statistics ffmpeg writes to the error output while copying the streams grow with the length of
+                 * the video, so only their tail is kept in case of errors. The standard output contains the progress
+                 * if it's requested and nothing otherwise.
+                 */
+                if (progressConsumer != null) {
+                    ProcessRunner.run(arguments, inputStream -> readProgress(inputStream, progressConsumer));
+                } else {
+                    ProcessRunner.run(arguments, inputStream -> null);
+                }
             } catch (ProcessException e) {
                 throw new FfmpegException(FfmpegException.Code.PROCESS_FAILED, e.getConsoleOutput());
             }
 
-            overwriteOriginalVideo(tempVideoFile, injectInfo.getOriginalVideoFile(), consoleOutput);
+            overwriteOriginalVideo(tempVideoFile, injectInfo.getOriginalVideoFile());
         } finally {
-            if (tempVideoFile.exists() && !tempVideoFile.delete()) {
-                log.warn("failed to delete the temporary video file " + tempVideoFile.getAbsolutePath());
+            for (File subtitleFile : subtitleFiles) {
+                deleteTempFile(subtitleFile);
+            }
+            if (tempVideoFile != null) {
+                deleteTempFile(tempVideoFile);
             }
-            currentTempVideoFile = null;
         }
     }
 
-    private List<String> getArgumentsInjectToFile(FfmpegInjectInfo injectInfo, File tempVideoFile) {
+    /**
+     * Returns the digest that is stored in the SUBTITLE_DIGEST_TAG tag for the given injected subtitles.
+     */
+    public static String getSubtitleDigest(String subtitles) {
+        return DigestUtils.sha256Hex(subtitles.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /*
+     * Reads the output of the -progress option. It consists of blocks of key=value lines, each block ends with the
+     * "progress" key which is "continue" for all the blocks except the last one where it's "end". If the consumer fails
+     * it's not called anymore but the output is still read to the end so that the injection itself isn't affected.
+     */
+    static Void readProgress(
+            InputStream inputStream,
+            Consumer<FfmpegInjectProgress> progressConsumer
+    ) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+
+        long processedMillis = 0;
+        long processedSize = 0;
+        boolean consumerFailed = false;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String key = StringUtils.substringBefore(line, "=");
+            String value = StringUtils.substringAfter(line, "=");
+
+            /* Despite its name out_time_ms is in microseconds too, older versions of ffmpeg have only that key. */
+            if (key.equals("out_time_us") || key.equals("out_time_ms")) {
+                processedMillis = parseProgressValue(value, processedMillis * 1000) / 1000;
+            } else if (key.equals("total_size")) {
+                processedSize = parseProgressValue(value, processedSize);
+            } else if (key.equals("progress") && !consumerFailed) {
+                try {
+                    progressConsumer.accept(new FfmpegInjectProgress(processedMillis, processedSize));
+                } catch (RuntimeException e) {
+                    log.warn("the progress consumer has failed, the progress won't be reported anymore: "
+                            + ExceptionUtils.getStackTrace(e));
+                    consumerFailed = true;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /*
+     * The values can be "N/A" at the beginning, in that case the previous value is kept.
+     */
+    private static long parseProgressValue(String value, long previousValue) {
+        try {
+            return Math.max(Long.parseLong(value.trim()), 0);
+        } catch (NumberFormatException e) {
+            return previousValue;
+        }
+    }
+
+    static List<String> getArgumentsInjectToFile(
+            File ffmpegFile,
+            FfmpegInjectInfo injectInfo,
+            List<File> subtitleFiles,
+            File tempVideoFile,
+            boolean reportProgress
+    ) {
         List<String> result = new ArrayList<>();
 
         result.add(ffmpegFile.getAbsolutePath());
         result.add("-y");
 
         result.addAll(Arrays.asList("-i", injectInfo.getOriginalVideoFile().getAbsolutePath()));
-        result.addAll(Arrays.asList("-i", Ffmpeg.TEMP_SUBTITLE_FILE.getAbsolutePath()));
-        result.addAll(Arrays.asList("-map", "0"));
-        result.addAll(Arrays.asList("-map", "1"));
+        for (File subtitleFile : subtitleFiles) {
+            result.addAll(Arrays.asList("-i", subtitleFile.getAbsolutePath()));
+        }
+        for (int i = 0; i <= subtitleFiles.size(); i++) {
+            result.addAll(Arrays.asList("-map", Integer.toString(i)));
+        }
         result.addAll(Arrays.asList("-c", "copy"));
 
         /*
@@ -212,52 +418,128 @@ public class Ffmpeg {
          */
         result.addAll(Arrays.asList("-max_interleave_delta", "0"));
 
-        int newStreamIndex = injectInfo.getCurrentSubtitleCount();
+        for (int i = 0; i < injectInfo.getSubtitles().size(); i++) {
+            FfmpegInjectSubtitles subtitles = injectInfo.getSubtitles().get(i);
+            int newStreamIndex = injectInfo.getCurrentSubtitleCount() + i;
+
+            if (subtitles.getLanguage() != null) {
+                result.add("-metadata:s:s:" + newStreamIndex);
+                result.add("language=" + subtitles.getLanguage());
+            }
+
+            result.add("-metadata:s:s:" + newStreamIndex);
+            result.add("title=" + subtitles.getTitle());
 
-        if (injectInfo.getLanguage() != null) {
             result.add("-metadata:s:s:" + newStreamIndex);
-            result.add("language=" + injectInfo.getLanguage());
+            result.add(SUBTITLE_DIGEST_TAG + "=" + getSubtitleDigest(subtitles.getText()));
         }
 
-        result.add("-metadata:s:s:" + newStreamIndex);
-        result.add("title=" + injectInfo.getTitle());
+        result.addAll(getDispositionArguments(injectInfo));
 
-        if (injectInfo.isMakeDefault()) {
-            if (!CollectionUtils.isEmpty(injectInfo.getStreamsToMakeNotDefaultIndices())) {
-                for (int index : injectInfo.getStreamsToMakeNotDefaultIndices()) {
-                    result.addAll(Arrays.asList("-disposition:" + index, "0"));
-                }
+        if (reportProgress) {
+            result.addAll(Arrays.asList("-nostats", "-progress", "pipe:1"));
+        }
+
+        result.add(tempVideoFile.getAbsolutePath());
+
+        return result;
+    }
+
+    /*
+     * Only one stream can be the default one, so if several new streams should be made default the first of them
+     * becomes default and the others are explicitly made not default.
+     */
+    private static List<String> getDispositionArguments(FfmpegInjectInfo injectInfo) {
+        List<String> result = new ArrayList<>();
+
+        int defaultIndex = -1;
+        for (int i = 0; i < injectInfo.getSubtitles().size(); i++) {
+            if (injectInfo.getSubtitles().get(i).isMakeDefault()) {
+                defaultIndex = i;
+                break;
             }
+        }
 
-            result.addAll(Arrays.asList("-disposition:s:" + newStreamIndex, "default"));
+        if (defaultIndex == -1) {
+            return result;
         }
 
-        result.add(tempVideoFile.getAbsolutePath());
+        if (!CollectionUtils.isEmpty(injectInfo.getStreamsToMakeNotDefaultIndices())) {
+            for (int index : injectInfo.getStreamsToMakeNotDefaultIndices()) {
+                result.addAll(Arrays.asList("-disposition:" + index, "0"));
+            }
+        }
+
+        for (int i = 0; i < injectInfo.getSubtitles().size(); i++) {
+            int newStreamIndex = injectInfo.getCurrentSubtitleCount() + i;
+            result.addAll(Arrays.asList("-disposition:s:" + newStreamIndex, i == defaultIndex ? "default" : "0"));
+        }
 
         return result;
     }
 
-    private static void overwriteOriginalVideo(
-            File tempVideoFile,
-            File originalVideoFile,
-            String consoleOutput
-    ) throws FfmpegException {
+    /**
+     * Returns whether the file is a temporary video created by this class (most likely left after a crash), such files
+     * shouldn't be treated as videos of the user.
+     */
+    public static boolean isTempVideoFile(File file) {
+        return file.getName().startsWith(TEMP_VIDEO_FILE_PREFIX);
+    }
+
+    /*
+     * Files.createTempFile gives the permissions only to the owner while the temporary video replaces the original, so
+     * the permissions of the original have to be copied, otherwise the group and others lose access to the video.
+     * Should be called before the permissions of the original are changed. Does nothing on the file systems without
+     * POSIX permissions.
+     */
+    private static void copyPosixPermissions(File originalVideoFile, File tempVideoFile) throws FfmpegException {
+        if (Files.getFileAttributeView(originalVideoFile.toPath(), PosixFileAttributeView.class) == null) {
+            return;
+        }
+
+        try {
+            Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(originalVideoFile.toPath());
+            Files.setPosixFilePermissions(tempVideoFile.toPath(), permissions);
+        } catch (IOException | UnsupportedOperationException e) {
+            log.warn("failed to copy the permissions of the video: " + ExceptionUtils.getStackTrace(e));
+            throw new FfmpegException(FfmpegException.Code.FAILED_TO_MOVE_TEMP_VIDEO, null);
+        }
+    }
+
+    private static void overwriteOriginalVideo(File tempVideoFile, File originalVideoFile) throws FfmpegException {
         /*
          * Save this flag here to restore it at the end of the method. Because otherwise if the file has had only read
          * access initially we will give it write access as well before renaming and leave it like that.
          */
         boolean originallyWritable = originalVideoFile.canWrite();
 
+        copyPosixPermissions(originalVideoFile, tempVideoFile);
+
         if (!originalVideoFile.setWritable(true, true)) {
             log.warn("failed to make video file " + originalVideoFile.getAbsolutePath() + " writable");
-            throw new FfmpegException(FfmpegException.Code.FAILED_TO_MOVE_TEMP_VIDEO, consoleOutput);
+            throw new FfmpegException(FfmpegException.Code.FAILED_TO_MOVE_TEMP_VIDEO, null);
         }
 
         try {
-            Files.move(tempVideoFile.toPath(), originalVideoFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            /*
+             * The temporary video is usually on the same file store as the original one so it's just a rename. But if
+             * that file store doesn't have enough space the temporary video is on another one, then the atomic move is
+             * not supported and the whole video is copied over the original.
+             */
+            try {
+                Files.move(
+                        tempVideoFile.toPath(),
+                        originalVideoFile.toPath(),
+                        StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING
+                );
+            } catch (AtomicMoveNotSupportedException e) {
+                log.warn("atomic move is not supported for " + tempVideoFile.getAbsolutePath() + ", will copy");
+                Files.move(tempVideoFile.toPath(), originalVideoFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
         } catch (IOException e) {
             log.warn("failed to move temporary video: " + ExceptionUtils.getStackTrace(e));
-            throw new FfmpegException(FfmpegException.Code.FAILED_TO_MOVE_TEMP_VIDEO, consoleOutput);
+            throw new FfmpegException(FfmpegException.Code.FAILED_TO_MOVE_TEMP_VIDEO, null);
         }
 
         if (!originallyWritable) {
@@ -268,21 +550,15 @@ public class Ffmpeg {
     }
 
     /**
-     * This method removes all temporary files required by the class.
+     * This method removes all temporary files that are currently used by the class.
      */
     public void close() {
-        if (TEMP_SUBTITLE_FILE.exists() && !TEMP_SUBTITLE_FILE.delete()) {
-            log.warn("failed to remove temporary subtitle file");
-        }
-
-        if (TEMP_CLEAN_SUBTITLE_FILE.exists() && !TEMP_CLEAN_SUBTITLE_FILE.delete()) {
-            log.warn("failed to remove temporary clean subtitle file");
-        }
-
-        if (currentTempVideoFile != null && currentTempVideoFile.exists()) {
-            log.info("remove temporary video file before exit: " + currentTempVideoFile.getAbsolutePath());
-            if (!currentTempVideoFile.delete()) {
-                log.warn("failed to remove temporary video file " + currentTempVideoFile.getAbsolutePath());
+        for (File file : currentTempFiles) {
+            if (file.exists()) {
+                log.info("remove temporary file before exit: " + file.getAbsolutePath());
+                if (!file.delete()) {
+                    log.warn("failed to remove temporary file " + file.getAbsolutePath());
+                }
             }
         }
     }
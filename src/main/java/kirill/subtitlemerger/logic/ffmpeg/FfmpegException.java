@@ -17,6 +17,7 @@ public class FfmpegException extends Exception {
         FAILED_TO_CONVERT_JSON,
         FAILED_TO_READ_TEMP_SUBTITLE_FILE,
         FAILED_TO_CREATE_TEMP_SUBTITLE_FILE,
+        FAILED_TO_CREATE_TEMP_VIDEO,
         FAILED_TO_MOVE_TEMP_VIDEO
     }
 }
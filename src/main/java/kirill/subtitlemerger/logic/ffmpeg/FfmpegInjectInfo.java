@@ -1,6 +1,5 @@
 package kirill.subtitlemerger.logic.ffmpeg;
 
-import com.neovisionaries.i18n.LanguageAlpha3Code;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
@@ -10,22 +9,27 @@ import java.util.List;
 @AllArgsConstructor
 @Getter
 public class FfmpegInjectInfo {
-    private String subtitles;
+    /**
+     * All the subtitles are injected at once so that the video is rewritten only once. The new streams are added in
+     * the order of the list.
+     */
+    private List<FfmpegInjectSubtitles> subtitles;
 
     /**
-     * This value will be used to get the index of a new stream.
+     * This value will be used to get the indices of the new streams.
      */
     private int currentSubtitleCount;
 
-    private LanguageAlpha3Code language;
-
-    private String title;
-
-    private boolean makeDefault;
-
+    /**
+     * These streams lose their default disposition if one of the new streams is made default.
+     */
     private List<Integer> streamsToMakeNotDefaultIndices;
 
     private File originalVideoFile;
 
+    /**
+     * Should be on the same file store as the original video if possible, then the original video is replaced with a
+     * simple rename instead of copying the whole video one more time.
+     */
     private File tempVideoDirectory;
 }
@@ -0,0 +1,18 @@
+package kirill.subtitlemerger.logic.ffmpeg;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The progress of the injection as reported by ffmpeg, the values are how much of the result has been written so far.
+ */
+@AllArgsConstructor
+@Getter
+public class FfmpegInjectProgress {
+    /**
+     * The position in the video up to which the result has been written.
+     */
+    private long processedMillis;
+
+    private long processedSize;
+}
@@ -0,0 +1,20 @@
+package kirill.subtitlemerger.logic.ffmpeg;
+
+import com.neovisionaries.i18n.LanguageAlpha3Code;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Subtitles for one of the new streams to inject, see FfmpegInjectInfo.
+ */
+@AllArgsConstructor
+@Getter
+public class FfmpegInjectSubtitles {
+    private String text;
+
+    private LanguageAlpha3Code language;
+
+    private String title;
+
+    private boolean makeDefault;
+}
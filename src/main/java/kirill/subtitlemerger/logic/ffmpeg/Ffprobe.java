@@ -8,9 +8,11 @@ import kirill.subtitlemerger.logic.ffmpeg.json.JsonFfprobeVideoInfo;
 import kirill.subtitlemerger.logic.utils.process.ProcessException;
 import kirill.subtitlemerger.logic.utils.process.ProcessRunner;
 import lombok.extern.apachecommons.CommonsLog;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
 
@@ -37,6 +39,10 @@ public class Ffprobe {
     }
 
     private static void validate(File ffprobeFile) throws FfmpegException, InterruptedException {
+        if (ValidatedExecutables.contains(ffprobeFile)) {
+            return;
+        }
+
         try {
             List<String> arguments = Arrays.asList(
                     ffprobeFile.getAbsolutePath(),
@@ -47,35 +53,68 @@ public class Ffprobe {
             if (!consoleOutput.startsWith("ffprobe version")) {
                 throw new FfmpegException(FfmpegException.Code.INCORRECT_FFPROBE_PATH, consoleOutput);
             }
+
+            ValidatedExecutables.add(ffprobeFile);
         } catch (ProcessException e) {
             throw new FfmpegException(FfmpegException.Code.INCORRECT_FFPROBE_PATH, e.getConsoleOutput());
         }
     }
 
+    /**
+     * Returns the video info parsed directly from the output of ffprobe, so the json text is never held in memory as a
+     * whole (it can be pretty large for videos with many chapters or attachments).
+     */
     public JsonFfprobeVideoInfo getVideoInfo(File videoFile) throws FfmpegException, InterruptedException {
-        String consoleOutput;
         try {
-            List<String> arguments = Arrays.asList(
-                    ffprobeFile.getAbsolutePath(),
-                    "-v",
-                    "quiet",
-                    "-show_format",
-                    "-show_streams",
-                    "-print_format",
-                    "json",
-                    videoFile.getAbsolutePath()
+            return ProcessRunner.run(
+                    getVideoInfoArguments(videoFile),
+                    inputStream -> JSON_OBJECT_MAPPER.readValue(inputStream, JsonFfprobeVideoInfo.class)
             );
+        } catch (ProcessException e) {
+            /* The reader fails only if the output can't be converted, otherwise ffprobe itself fails first. */
+            if (e.getCode() == ProcessException.Code.FAILED_TO_READ_OUTPUT) {
+                log.error("failed to convert the output of ffprobe for " + videoFile.getAbsolutePath());
+                throw new FfmpegException(FfmpegException.Code.FAILED_TO_CONVERT_JSON, e.getConsoleOutput());
+            }
+
+            throw new FfmpegException(FfmpegException.Code.PROCESS_FAILED, e.getConsoleOutput());
+        }
+    }
 
-            consoleOutput = ProcessRunner.run(arguments);
+    /**
+     * Returns the video info in the form of the json text produced by ffprobe, it can be stored as is and converted
+     * later with the parseVideoInfo method.
+     */
+    public String getVideoInfoJson(File videoFile) throws FfmpegException, InterruptedException {
+        try {
+            return ProcessRunner.run(
+                    getVideoInfoArguments(videoFile),
+                    inputStream -> IOUtils.toString(inputStream, StandardCharsets.UTF_8)
+            );
         } catch (ProcessException e) {
             throw new FfmpegException(FfmpegException.Code.PROCESS_FAILED, e.getConsoleOutput());
         }
+    }
+
+    private List<String> getVideoInfoArguments(File videoFile) {
+        return Arrays.asList(
+                ffprobeFile.getAbsolutePath(),
+                "-v",
+                "quiet",
+                "-show_format",
+                "-show_streams",
+                "-print_format",
+                "json",
+                videoFile.getAbsolutePath()
+        );
+    }
 
+    public static JsonFfprobeVideoInfo parseVideoInfo(String json) throws FfmpegException {
         try {
-            return JSON_OBJECT_MAPPER.readValue(consoleOutput, JsonFfprobeVideoInfo.class);
+            return JSON_OBJECT_MAPPER.readValue(json, JsonFfprobeVideoInfo.class);
         } catch (JsonProcessingException e) {
-            log.error("failed to convert " + consoleOutput + " to ffprobe json: " + ExceptionUtils.getStackTrace(e));
-            throw new FfmpegException(FfmpegException.Code.FAILED_TO_CONVERT_JSON, consoleOutput);
+            log.error("failed to convert " + json + " to ffprobe json: " + ExceptionUtils.getStackTrace(e));
+            throw new FfmpegException(FfmpegException.Code.FAILED_TO_CONVERT_JSON, json);
         }
     }
 }
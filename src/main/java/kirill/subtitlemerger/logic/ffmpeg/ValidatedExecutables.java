@@ -0,0 +1,27 @@
+package kirill.subtitlemerger.logic.ffmpeg;
+
+import java.io.File;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class remembers the ffmpeg and ffprobe executables that have passed the validation so that they aren't launched
+ * again each time an Ffmpeg or an Ffprobe object is created. An executable is identified by its path, size and
+ * modification time, so an executable that has been replaced is validated again. Failed validations are not
+ * remembered because they can be caused by temporary problems.
+ */
+class ValidatedExecutables {
+    private static final Set<String> KEYS = ConcurrentHashMap.newKeySet();
+
+    static boolean contains(File executable) {
+        return KEYS.contains(getKey(executable));
+    }
+
+    static void add(File executable) {
+        KEYS.add(getKey(executable));
+    }
+
+    static String getKey(File executable) {
+        return executable.getAbsolutePath() + "_" + executable.length() + "_" + executable.lastModified();
+    }
+}
@@ -8,11 +8,19 @@ import lombok.Getter;
 public class JsonFormat {
     private String formatName;
 
+    /*
+     * The duration in seconds, ffprobe writes it as a string like "5412.345000". It can be missing for some containers.
+     */
+    private String duration;
+
     @JsonCreator
     public JsonFormat(
             @JsonProperty(value = "format_name")
-                    String formatName
+                    String formatName,
+            @JsonProperty(value = "duration")
+                    String duration
     ) {
         this.formatName = formatName;
+        this.duration = duration;
     }
 }
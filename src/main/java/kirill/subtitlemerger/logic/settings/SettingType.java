@@ -20,7 +20,12 @@ public enum SettingType {
     LAST_DIRECTORY_WITH_VIDEOS("last_directory_with_videos", File.class),
     LAST_DIRECTORY_WITH_VIDEO_SUBTITLES("last_directory_with_video_subtitles", File.class),
     SORT_BY("sort_by", SortBy.class),
-    SORT_DIRECTION("sort_direction", SortDirection.class);
+    SORT_DIRECTION("sort_direction", SortDirection.class),
+    SUBTITLE_CACHE_SIZE_MEGABYTES("subtitle_cache_size_megabytes", Integer.class),
+    MERGE_WORKER_COUNT("merge_worker_count", Integer.class),
+    INCLUDE_SUBDIRECTORIES("include_subdirectories", Boolean.class),
+    VIDEO_TABLE_LIMIT("video_table_limit", Integer.class),
+    MAX_PROCESS_COUNT("max_process_count", Integer.class);
 
     private String code;
 
@@ -2,6 +2,7 @@ package kirill.subtitlemerger.logic.settings;
 
 import com.neovisionaries.i18n.LanguageAlpha3Code;
 import kirill.subtitlemerger.logic.LogicConstants;
+import kirill.subtitlemerger.logic.utils.process.ProcessRunner;
 import lombok.extern.apachecommons.CommonsLog;
 import org.apache.commons.lang3.EnumUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -79,6 +80,7 @@ public class Settings {
                 return mergeMode;
             case MAKE_MERGED_STREAMS_DEFAULT:
             case PLAIN_TEXT_SUBTITLES:
+            case INCLUDE_SUBDIRECTORIES:
                 if ("true".equals(string)) {
                     return true;
                 } else if ("false".equals(string)) {
@@ -98,6 +100,15 @@ public class Settings {
                     throw new SettingsException("incorrect sort direction: " + string);
                 }
                 return sortDirection;
+            case SUBTITLE_CACHE_SIZE_MEGABYTES:
+            case MERGE_WORKER_COUNT:
+            case VIDEO_TABLE_LIMIT:
+            case MAX_PROCESS_COUNT:
+                try {
+                    return Integer.parseInt(string);
+                } catch (NumberFormatException e) {
+                    throw new SettingsException("incorrect integer value: " + string);
+                }
             default:
                 log.error("unexpected setting type: " + settingType + ", most likely a bug");
                 throw new IllegalStateException();
@@ -128,10 +139,19 @@ public class Settings {
             case PLAIN_TEXT_SUBTITLES:
             case SORT_BY:
             case SORT_DIRECTION:
+            case INCLUDE_SUBDIRECTORIES:
                 /*
                  * Don't do anything here because if the object was converted then it's valid.
                  */
                 return;
+            case SUBTITLE_CACHE_SIZE_MEGABYTES:
+                validateNotNegative((Integer) object);
+                return;
+            case MERGE_WORKER_COUNT:
+            case VIDEO_TABLE_LIMIT:
+            case MAX_PROCESS_COUNT:
+                validatePositive((Integer) object);
+                return;
             default:
                 log.error("unexpected setting type: " + settingType + ", most likely a bug");
                 throw new IllegalStateException();
@@ -150,11 +170,28 @@ public class Settings {
         }
     }
 
+    private static void validateNotNegative(int value) throws SettingsException {
+        if (value < 0) {
+            throw new SettingsException("value " + value + " is negative");
+        }
+    }
+
+    private static void validatePositive(int value) throws SettingsException {
+        if (value <= 0) {
+            throw new SettingsException("value " + value + " is not positive");
+        }
+    }
+
     private static void setDefaultSettings(Map<SettingType, Object> savedSettings) {
         savedSettings.putIfAbsent(SORT_BY, SortBy.MODIFICATION_TIME);
         savedSettings.putIfAbsent(SORT_DIRECTION, SortDirection.ASCENDING);
         savedSettings.putIfAbsent(MAKE_MERGED_STREAMS_DEFAULT, false);
         savedSettings.putIfAbsent(PLAIN_TEXT_SUBTITLES, false);
+        savedSettings.putIfAbsent(SUBTITLE_CACHE_SIZE_MEGABYTES, 512);
+        savedSettings.putIfAbsent(MERGE_WORKER_COUNT, 1);
+        savedSettings.putIfAbsent(INCLUDE_SUBDIRECTORIES, false);
+        savedSettings.putIfAbsent(VIDEO_TABLE_LIMIT, 10_000);
+        savedSettings.putIfAbsent(MAX_PROCESS_COUNT, ProcessRunner.DEFAULT_MAX_PROCESS_COUNT);
     }
 
     public File getLastDirectoryWithUpperSubtitles() {
@@ -211,6 +248,42 @@ public class Settings {
         return (SortDirection) settings.get(SORT_DIRECTION);
     }
 
+    /**
+     * Returns the maximum total size of subtitles extracted from videos that are kept on the disk, 0 means that
+     * extracted subtitles are not kept.
+     */
+    public int getSubtitleCacheSizeMegabytes() {
+        return (Integer) settings.get(SUBTITLE_CACHE_SIZE_MEGABYTES);
+    }
+
+    /**
+     * Returns the number of videos that can be merged at the same time, 1 means that videos are merged one by one.
+     */
+    public int getMergeWorkerCount() {
+        return (Integer) settings.get(MERGE_WORKER_COUNT);
+    }
+
+    /**
+     * Returns whether videos from the subdirectories of the chosen directory should be shown as well.
+     */
+    public boolean isIncludeSubdirectories() {
+        return Boolean.TRUE.equals(settings.get(INCLUDE_SUBDIRECTORIES));
+    }
+
+    /**
+     * Returns the maximum number of videos in the table, both for a directory and for separately chosen videos.
+     */
+    public int getVideoTableLimit() {
+        return (Integer) settings.get(VIDEO_TABLE_LIMIT);
+    }
+
+    /**
+     * Returns the maximum number of ffmpeg and ffprobe processes that can run at the same time.
+     */
+    public int getMaxProcessCount() {
+        return (Integer) settings.get(MAX_PROCESS_COUNT);
+    }
+
     /**
      * Saves the given setting value in a quiet way without having to deal with a checked exception. If the value is
      * incorrect there will be an error log record and an IllegalStateException will be thrown.
@@ -266,6 +339,11 @@ public class Settings {
             case PLAIN_TEXT_SUBTITLES:
             case SORT_BY:
             case SORT_DIRECTION:
+            case SUBTITLE_CACHE_SIZE_MEGABYTES:
+            case MERGE_WORKER_COUNT:
+            case INCLUDE_SUBDIRECTORIES:
+            case VIDEO_TABLE_LIMIT:
+            case MAX_PROCESS_COUNT:
                 return object.toString();
             default:
                 log.error("unexpected setting type: " + settingType + ", most likely a bug");
@@ -3,71 +3,168 @@ package kirill.subtitlemerger.logic.subtitles;
 import kirill.subtitlemerger.logic.subtitles.entities.Subtitle;
 import kirill.subtitlemerger.logic.subtitles.entities.SubtitleFormatException;
 import kirill.subtitlemerger.logic.subtitles.entities.Subtitles;
-import org.apache.commons.lang3.Range;
+import lombok.extern.apachecommons.CommonsLog;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.joda.time.LocalTime;
-import org.joda.time.format.DateTimeFormat;
-import org.joda.time.format.DateTimeFormatter;
 
+import java.io.*;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import static java.util.stream.Collectors.toList;
+import java.util.function.Consumer;
 
+@CommonsLog
 public class SubRipParser {
-    private static final Pattern TIME_RANGE_PATTERN = Pattern.compile(
-            "^(\\d{2}:\\d{2}:\\d{2},\\d{3}) --> (\\d{2}:\\d{2}:\\d{2},\\d{3})$"
-    );
+    /*
+     * The length of a string like "00:00:00,000".
+     */
+    private static final int TIME_LENGTH = 12;
 
-    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormat.forPattern("HH:mm:ss,SSS");
+    private static final String TIME_RANGE_SEPARATOR = " --> ";
 
     /*
-     * The main idea of this method is to find lines with time ranges, they are the most stable and reliable parts of
-     * the text.
+     * The length of a string like "00:00:00,000 --> 00:00:00,000".
      */
+    private static final int TIME_RANGE_LENGTH = 2 * TIME_LENGTH + TIME_RANGE_SEPARATOR.length();
+
     public static Subtitles from(String text) throws SubtitleFormatException {
         List<Subtitle> result = new ArrayList<>();
 
-        /* Remove BOM if it's present. */
-        if (text.startsWith("\uFEFF")) {
-            text = text.substring(1);
+        try {
+            parse(new StringReader(text), result::add);
+        } catch (IOException e) {
+            log.error("failed to read from a string: " + ExceptionUtils.getStackTrace(e) + ", most likely a bug");
+            throw new IllegalStateException();
         }
 
-        text = text.trim();
-        if (StringUtils.isBlank(text)) {
-            return new Subtitles(result);
-        }
+        return new Subtitles(result);
+    }
 
-        List<String> lines = text.lines().collect(toList());
-        /* We need at least two lines - one should contain a number and the other a time range. */
-        if (lines.size() < 2) {
-            throw new SubtitleFormatException();
+    /**
+     * Parses the subtitles directly from the raw data so that there is no need to create an intermediate string with
+     * the whole text.
+     */
+    public static Subtitles from(byte[] rawData, Charset encoding) throws SubtitleFormatException {
+        List<Subtitle> result = new ArrayList<>();
+
+        try {
+            parse(new ByteArrayInputStream(rawData), encoding, result::add);
+        } catch (IOException e) {
+            log.error("failed to read from a byte array: " + ExceptionUtils.getStackTrace(e) + ", most likely a bug");
+            throw new IllegalStateException();
         }
 
-        assertSubtitleNumber(lines.get(0));
-        Range<LocalTime> timeRange = getTimeRange(lines.get(1));
-        List<String> subtitleLines = new ArrayList<>();
-        for (int i = 2; i < lines.size(); i++) {
-            if (isLineWithTimeRange(lines.get(i))) {
-                assertBlank(lines.get(i - 2));
-                assertSubtitleNumber(lines.get(i - 1));
+        return new Subtitles(result);
+    }
 
-                /* The last two lines are a blank line and a line with a number. */
-                subtitleLines = subtitleLines.subList(0, subtitleLines.size() - 2);
-                result.add(new Subtitle(timeRange.getMinimum(), timeRange.getMaximum(), subtitleLines));
+    /**
+     * Reads the subtitles from the stream line by line and passes each subtitle to the consumer as soon as it's
+     * complete, so neither the whole text nor the list of all its lines are kept in memory. Note that if the format
+     * turns out to be incorrect at some point, the subtitles passed to the consumer before should be discarded.
+     */
+    public static void parse(
+            InputStream inputStream,
+            Charset encoding,
+            Consumer<Subtitle> consumer
+    ) throws SubtitleFormatException, IOException {
+        parse(new InputStreamReader(inputStream, encoding), consumer);
+    }
 
-                timeRange = getTimeRange(lines.get(i));
-                subtitleLines = new ArrayList<>();
-            } else {
-                subtitleLines.add(lines.get(i));
+    /*
+     * The main idea of this method is to find lines with time ranges, they are the most stable and reliable parts of
+     * the text.
+     */
+    private static void parse(Reader reader, Consumer<Subtitle> consumer) throws SubtitleFormatException, IOException {
+        BufferedReader bufferedReader = new BufferedReader(reader);
+        LineProcessor lineProcessor = new LineProcessor(consumer);
+
+        /*
+         * The text should be processed as if it was trimmed, so the lines at the beginning that consist of whitespaces
+         * only are skipped and the lines at the end of the same kind are held back until a line with some text arrives.
+         * We also hold back all the lines until there is a line that is not blank because a blank text is not an error,
+         * it's just a text without subtitles.
+         */
+        List<String> heldBackLines = new ArrayList<>();
+        boolean firstLine = true;
+        boolean textStarted = false;
+        boolean notBlankLineFound = false;
+        boolean heldBackNotBlank = false;
+
+        String line;
+        while ((line = bufferedReader.readLine()) != null) {
+            if (firstLine) {
+                /* Remove BOM if it's present. */
+                if (line.startsWith("\uFEFF")) {
+                    line = line.substring(1);
+                }
+                firstLine = false;
             }
+
+            boolean trimmedToEmpty = line.trim().isEmpty();
+            if (!textStarted) {
+                if (trimmedToEmpty) {
+                    continue;
+                }
+
+                line = stripLeadingWhitespaces(line);
+                textStarted = true;
+            }
+
+            if (!trimmedToEmpty && (notBlankLineFound || heldBackNotBlank || !StringUtils.isBlank(line))) {
+                notBlankLineFound = true;
+
+                for (String heldBackLine : heldBackLines) {
+                    lineProcessor.process(heldBackLine);
+                }
+                heldBackLines.clear();
+                heldBackNotBlank = false;
+            } else if (!heldBackNotBlank) {
+                heldBackNotBlank = !StringUtils.isBlank(line);
+            }
+
+            heldBackLines.add(line);
         }
 
-        result.add(new Subtitle(timeRange.getMinimum(), timeRange.getMaximum(), subtitleLines));
+        if (!notBlankLineFound) {
+            return;
+        }
 
-        return new Subtitles(result);
+        /* The lines after the last one with some text are skipped and the last one is trimmed at the end. */
+        int lastTextLineIndex = heldBackLines.size() - 1;
+        while (heldBackLines.get(lastTextLineIndex).trim().isEmpty()) {
+            lastTextLineIndex--;
+        }
+        for (int i = 0; i < lastTextLineIndex; i++) {
+            lineProcessor.process(heldBackLines.get(i));
+        }
+        lineProcessor.process(stripTrailingWhitespaces(heldBackLines.get(lastTextLineIndex)));
+
+        lineProcessor.finish();
+    }
+
+    /*
+     * Removes leading characters the same way as String::trim does, so that the result is consistent with it.
+     */
+    private static String stripLeadingWhitespaces(String line) {
+        int start = 0;
+        while (start < line.length() && line.charAt(start) <= ' ') {
+            start++;
+        }
+
+        return line.substring(start);
+    }
+
+    /*
+     * Removes trailing characters the same way as String::trim does, so that the result is consistent with it.
+     */
+    private static String stripTrailingWhitespaces(String line) {
+        int end = line.length();
+        while (end > 0 && line.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        return line.substring(0, end);
     }
 
     private static void assertSubtitleNumber(String line) throws SubtitleFormatException {
@@ -80,44 +177,153 @@ public class SubRipParser {
         }
     }
 
-    private static Range<LocalTime> getTimeRange(String line) throws SubtitleFormatException {
-        Matcher matcher = TIME_RANGE_PATTERN.matcher(line.trim());
-        if (!matcher.matches()) {
+    private static void assertBlank(String line) throws SubtitleFormatException {
+        if (!StringUtils.isBlank(line)) {
             throw new SubtitleFormatException();
         }
+    }
 
-        LocalTime from;
-        try {
-            from = TIME_FORMATTER.parseLocalTime(matcher.group(1));
-        } catch (IllegalArgumentException e) {
-            throw new SubtitleFormatException();
+    /**
+     * This class gets the lines of the trimmed text one by one and builds subtitles from them. It remembers only the
+     * lines of the current subtitle.
+     */
+    private static class LineProcessor {
+        private Consumer<Subtitle> consumer;
+
+        private int lineCount;
+
+        private String previousLine;
+
+        private String beforePreviousLine;
+
+        private LocalTime from;
+
+        private LocalTime to;
+
+        private List<String> subtitleLines;
+
+        LineProcessor(Consumer<Subtitle> consumer) {
+            this.consumer = consumer;
+
+            subtitleLines = new ArrayList<>();
         }
 
-        LocalTime to;
-        try {
-            to = TIME_FORMATTER.parseLocalTime(matcher.group(2));
-        } catch (IllegalArgumentException e) {
-            throw new SubtitleFormatException();
+        void process(String line) throws SubtitleFormatException {
+            if (lineCount == 0) {
+                assertSubtitleNumber(line);
+            } else if (lineCount == 1) {
+                setTimeRange(line);
+            } else {
+                if (isLineWithTimeRange(line)) {
+                    assertBlank(beforePreviousLine);
+                    assertSubtitleNumber(previousLine);
+
+                    /* The last two lines are a blank line and a line with a number. */
+                    subtitleLines = subtitleLines.subList(0, subtitleLines.size() - 2);
+                    consumer.accept(new Subtitle(from, to, subtitleLines));
+
+                    setTimeRange(line);
+                    subtitleLines = new ArrayList<>();
+                } else {
+                    subtitleLines.add(line);
+                }
+            }
+
+            beforePreviousLine = previousLine;
+            previousLine = line;
+            lineCount++;
+        }
+
+        void finish() throws SubtitleFormatException {
+            /* We need at least two lines - one should contain a number and the other a time range. */
+            if (lineCount < 2) {
+                throw new SubtitleFormatException();
+            }
+
+            consumer.accept(new Subtitle(from, to, subtitleLines));
         }
 
-        return Range.between(from, to, LocalTime::compareTo);
+        private void setTimeRange(String line) throws SubtitleFormatException {
+            String trimmedLine = line.trim();
+            if (!hasTimeRangeStructure(trimmedLine)) {
+                throw new SubtitleFormatException();
+            }
+
+            LocalTime first = getTime(trimmedLine, 0);
+            LocalTime second = getTime(trimmedLine, TIME_LENGTH + TIME_RANGE_SEPARATOR.length());
+
+            /* If the times go in the wrong order they are swapped so that a subtitle always starts before it ends. */
+            if (second.isBefore(first)) {
+                from = second;
+                to = first;
+            } else {
+                from = first;
+                to = second;
+            }
+        }
     }
 
     private static boolean isLineWithTimeRange(String line) {
         /*
          * This simple check is here for the sake of performance, it's pretty precise and at the same time much faster
-         * comparing to regular expressions.
+         * comparing to the full check.
          */
         if (!line.contains("-->")) {
             return false;
         }
 
-        return TIME_RANGE_PATTERN.matcher(line.trim()).matches();
+        return hasTimeRangeStructure(line.trim());
     }
 
-    private static void assertBlank(String line) throws SubtitleFormatException {
-        if (!StringUtils.isBlank(line)) {
+    /**
+     * Checks whether the line looks like "00:00:00,000 --> 00:00:00,000". Note that the values themselves are not
+     * validated here, so for example "99:99:99,999 --> 00:00:00,000" is a line with a time range as well, just an
+     * incorrect one.
+     */
+    private static boolean hasTimeRangeStructure(String line) {
+        if (line.length() != TIME_RANGE_LENGTH) {
+            return false;
+        }
+
+        return hasTimeStructure(line, 0)
+                && line.startsWith(TIME_RANGE_SEPARATOR, TIME_LENGTH)
+                && hasTimeStructure(line, TIME_LENGTH + TIME_RANGE_SEPARATOR.length());
+    }
+
+    private static boolean hasTimeStructure(String line, int offset) {
+        return isDigit(line, offset) && isDigit(line, offset + 1) && line.charAt(offset + 2) == ':'
+                && isDigit(line, offset + 3) && isDigit(line, offset + 4) && line.charAt(offset + 5) == ':'
+                && isDigit(line, offset + 6) && isDigit(line, offset + 7) && line.charAt(offset + 8) == ','
+                && isDigit(line, offset + 9) && isDigit(line, offset + 10) && isDigit(line, offset + 11);
+    }
+
+    private static boolean isDigit(String line, int index) {
+        char character = line.charAt(index);
+        return character >= '0' && character <= '9';
+    }
+
+    /**
+     * Returns the time that starts at the given offset, the structure has to be checked beforehand.
+     */
+    private static LocalTime getTime(String line, int offset) throws SubtitleFormatException {
+        int hours = getNumber(line, offset, 2);
+        int minutes = getNumber(line, offset + 3, 2);
+        int seconds = getNumber(line, offset + 6, 2);
+        int milliseconds = getNumber(line, offset + 9, 3);
+
+        if (hours > 23 || minutes > 59 || seconds > 59) {
             throw new SubtitleFormatException();
         }
+
+        return new LocalTime(hours, minutes, seconds, milliseconds);
+    }
+
+    private static int getNumber(String line, int offset, int length) {
+        int result = 0;
+        for (int i = offset; i < offset + length; i++) {
+            result = result * 10 + (line.charAt(i) - '0');
+        }
+
+        return result;
     }
 }
@@ -2,47 +2,96 @@ package kirill.subtitlemerger.logic.subtitles;
 
 import kirill.subtitlemerger.logic.subtitles.entities.Subtitle;
 import kirill.subtitlemerger.logic.subtitles.entities.Subtitles;
+import lombok.extern.apachecommons.CommonsLog;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.joda.time.format.DateTimeFormat;
-import org.joda.time.format.DateTimeFormatter;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.joda.time.LocalTime;
 
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+@CommonsLog
 public class SubRipWriter {
-    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormat.forPattern("HH:mm:ss,SSS");
-
     public static String toText(Subtitles subtitles, boolean plainText) {
         StringBuilder result = new StringBuilder();
 
+        try {
+            write(subtitles, plainText, result);
+        } catch (IOException e) {
+            log.error("failed to write to a string builder: " + ExceptionUtils.getStackTrace(e) + ", most likely a bug");
+            throw new IllegalStateException();
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * Writes the subtitles to the stream in UTF-8 without creating the whole text in memory first. The stream is
+     * flushed but not closed.
+     */
+    public static void write(Subtitles subtitles, boolean plainText, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        write(subtitles, plainText, writer);
+        writer.flush();
+    }
+
+    public static void write(Subtitles subtitles, boolean plainText, Appendable destination) throws IOException {
         for (int i = 0; i < subtitles.getSubtitles().size(); i++) {
             Subtitle subtitle = subtitles.getSubtitles().get(i);
 
-            result.append(i + 1);
-            result.append(System.lineSeparator());
+            destination.append(Integer.toString(i + 1));
+            destination.append(System.lineSeparator());
 
-            result.append(TIME_FORMATTER.print(subtitle.getFrom()));
-            result.append(" --> ");
-            result.append(TIME_FORMATTER.print(subtitle.getTo()));
-            result.append(System.lineSeparator());
+            appendTime(subtitle.getFrom(), destination);
+            destination.append(" --> ");
+            appendTime(subtitle.getTo(), destination);
+            destination.append(System.lineSeparator());
 
             List<String> processedLines = getProcessedSubtitleLines(subtitle.getLines(), plainText);
             for (int j = 0; j < processedLines.size(); j++) {
-                result.append(processedLines.get(j));
+                destination.append(processedLines.get(j));
 
                 if (j != processedLines.size() - 1 || i != subtitles.getSubtitles().size() - 1) {
-                    result.append(System.lineSeparator());
+                    destination.append(System.lineSeparator());
                 }
             }
 
             if (i != subtitles.getSubtitles().size() - 1) {
-                result.append(System.lineSeparator());
+                destination.append(System.lineSeparator());
             }
         }
+    }
 
-        return result.toString();
+    /**
+     * Appends the time in the format HH:mm:ss,SSS. It's done by hand because it's much faster than using a formatter
+     * and times are written twice for each subtitle.
+     */
+    private static void appendTime(LocalTime time, Appendable destination) throws IOException {
+        appendNumber(time.getHourOfDay(), 2, destination);
+        destination.append(':');
+        appendNumber(time.getMinuteOfHour(), 2, destination);
+        destination.append(':');
+        appendNumber(time.getSecondOfMinute(), 2, destination);
+        destination.append(',');
+        appendNumber(time.getMillisOfSecond(), 3, destination);
+    }
+
+    /**
+     * Appends the number padded with zeros on the left to have the given number of digits.
+     */
+    private static void appendNumber(int number, int digitCount, Appendable destination) throws IOException {
+        int divisor = 1;
+        for (int i = 1; i < digitCount; i++) {
+            divisor *= 10;
+        }
+
+        for (; divisor > 0; divisor /= 10) {
+            destination.append((char) ('0' + number / divisor % 10));
+        }
     }
 
     /**
@@ -86,28 +135,90 @@ public class SubRipWriter {
     }
 
     /**
-     * This method removes HTML and SubStation Alpha tags using regular expressions. I realize that it's not right to
-     * work with HTML using regular expressions and I could have used jsoup to clear tags out but here are the arguments
-     * not to do it:
+     * This method removes HTML and SubStation Alpha tags. I realize that it's not right to just look for brackets when
+     * working with HTML and I could have used jsoup to clear tags out but here are the arguments not to do it:
      * 1) A subtitle text is not an html text, it's a regular text with html tags as far as I know. So for example the
      * string "<test" is correct in terms of subtitles but incorrect in terms of HTML because brackets that are not tags
      * have to be encoded. So if I use jsoup it will simply remove the text "<test" completely instead of leaving it as
      * is.
      * 2) All not removed basic html entities will be html-encoded so I have to decode them back.
      * 3) Even if I use jsoup there are no well-known libraries for removing SubStation Alpha tags.
-     * 4) Regular expressions are faster than jsoup.
+     * 4) A simple scan is much faster than jsoup.
      * 5) If it's possible not to use another library it's better to do so to reduce the jar's size.
-     * So I think in general for our purposes regular expressions will suffice.
+     * The tags are removed exactly the way the regular expressions "<.+?>" and then "\\{.+?}" would remove them, but
+     * without regular expressions because this method is called for every line and used to be the slowest part of
+     * the writer.
      */
     private static String getPlainText(String text) {
-        String result = text;
-        if (text.contains("<") || text.contains(">")) {
-            result = result.replaceAll("<.+?>", "");
+        String result = removeTags(text, '<', '>');
+        return removeTags(result, '{', '}');
+    }
+
+    /**
+     * Removes all parts of the text that start with the opening character, end with the nearest closing character and
+     * have at least one character in between which is not a line terminator. If there is nothing to remove the
+     * original string is returned.
+     */
+    private static String removeTags(String text, char opening, char closing) {
+        StringBuilder result = null;
+        int copiedUntil = 0;
+
+        int index = text.indexOf(opening);
+        while (index != -1) {
+            int tagEnd = getTagEnd(text, index, closing);
+            if (tagEnd < 0) {
+                /*
+                 * If there is no closing character for this opening character then there is no closing character for
+                 * the following opening characters before the position at which the search stopped either, so it's
+                 * possible to continue from that position and avoid checking the same characters again.
+                 */
+                index = text.indexOf(opening, -tagEnd - 1);
+                continue;
+            }
+
+            if (result == null) {
+                result = new StringBuilder(text.length());
+            }
+            result.append(text, copiedUntil, index);
+            copiedUntil = tagEnd + 1;
+
+            index = text.indexOf(opening, copiedUntil);
         }
-        if (text.contains("{") || text.contains("}")) {
-            result = result.replaceAll("\\{.+?}", "");
+
+        if (result == null) {
+            return text;
         }
 
-        return result;
+        result.append(text, copiedUntil, text.length());
+        return result.toString();
+    }
+
+    /**
+     * Returns the index of the closing character for the tag starting at the given index or, if there is no such
+     * character, a negative value -(position + 1) where the position is the index at which the search stopped (either
+     * the index of a line terminator or the length of the text).
+     */
+    private static int getTagEnd(String text, int tagStart, char closing) {
+        for (int i = tagStart + 1; i < text.length(); i++) {
+            char character = text.charAt(i);
+            if (isLineTerminator(character)) {
+                return -(i + 1);
+            }
+
+            /* There should be at least one character between the opening and the closing characters. */
+            if (character == closing && i > tagStart + 1) {
+                return i;
+            }
+        }
+
+        return -(text.length() + 1);
+    }
+
+    /**
+     * Line terminators are checked to be consistent with the regular expression's dot that doesn't match them.
+     */
+    private static boolean isLineTerminator(char character) {
+        return character == '\n' || character == '\r' || character == '\u0085' || character == '\u2028'
+                || character == '\u2029';
     }
 }
@@ -38,51 +38,37 @@ public class SubtitleMerger {
     ) throws InterruptedException {
         List<MergerSubtitle> result = new ArrayList<>();
 
-        List<LocalTime> pointsOfTime = getUniqueSortedPointsOfTime(upperSubtitles, lowerSubtitles);
+        SubtitleTimeline upperTimeline = SubtitleTimeline.from(upperSubtitles);
+        SubtitleTimeline lowerTimeline = SubtitleTimeline.from(lowerSubtitles);
 
-        boolean upperConsequential = consequentialSubtitles(upperSubtitles);
-        boolean lowerConsequential = consequentialSubtitles(lowerSubtitles);
-        int upperIndex = 0;
-        int lowerIndex = 0;
-        for (int i = 0; i < pointsOfTime.size() - 1; i++) {
+        int[] pointsOfTime = getUniqueSortedPointsOfTime(upperTimeline, lowerTimeline);
+
+        ActiveSubtitles activeUpperSubtitles = new ActiveSubtitles(upperTimeline);
+        ActiveSubtitles activeLowerSubtitles = new ActiveSubtitles(lowerTimeline);
+        for (int i = 0; i < pointsOfTime.length - 1; i++) {
             if (Thread.interrupted()) {
                 throw new InterruptedException();
             }
 
-            LocalTime from = pointsOfTime.get(i);
-            LocalTime to = pointsOfTime.get(i + 1);
-
-            Subtitle upperSubtitle = null;
-            Integer matchingUpperIndex = getIndexMatchingTime(upperIndex, upperSubtitles, from, to, upperConsequential);
-            if (matchingUpperIndex != null) {
-                upperIndex = matchingUpperIndex;
-                upperSubtitle = upperSubtitles.getSubtitles().get(upperIndex);
-            }
+            int from = pointsOfTime[i];
+            int to = pointsOfTime[i + 1];
 
-            Subtitle lowerSubtitle = null;
-            Integer matchingLowerIndex = getIndexMatchingTime(lowerIndex, lowerSubtitles, from, to, lowerConsequential);
-            if (matchingLowerIndex != null) {
-                lowerIndex = matchingLowerIndex;
-                lowerSubtitle = lowerSubtitles.getSubtitles().get(lowerIndex);
-            }
+            int upperIndex = activeUpperSubtitles.moveTo(from);
+            int lowerIndex = activeLowerSubtitles.moveTo(from);
 
-            if (upperSubtitle != null || lowerSubtitle != null) {
+            if (upperIndex != ActiveSubtitles.NO_INDEX || lowerIndex != ActiveSubtitles.NO_INDEX) {
                 List<MergerSubtitleLine> subtitleLines = new ArrayList<>();
 
-                if (upperSubtitle != null) {
-                    subtitleLines.addAll(
-                            upperSubtitle.getLines().stream()
-                                    .map(line -> new MergerSubtitleLine(line, Source.UPPER_SUBTITLES))
-                                    .collect(toList())
-                    );
+                if (upperIndex != ActiveSubtitles.NO_INDEX) {
+                    for (String line : upperTimeline.getLines(upperIndex)) {
+                        subtitleLines.add(new MergerSubtitleLine(line, Source.UPPER_SUBTITLES));
+                    }
                 }
 
-                if (lowerSubtitle != null) {
-                    subtitleLines.addAll(
-                            lowerSubtitle.getLines().stream()
-                                    .map(line -> new MergerSubtitleLine(line, Source.LOWER_SUBTITLES))
-                                    .collect(toList())
-                    );
+                if (lowerIndex != ActiveSubtitles.NO_INDEX) {
+                    for (String line : lowerTimeline.getLines(lowerIndex)) {
+                        subtitleLines.add(new MergerSubtitleLine(line, Source.LOWER_SUBTITLES));
+                    }
                 }
 
                 result.add(new MergerSubtitle(from, to, subtitleLines));
@@ -92,83 +78,38 @@ public class SubtitleMerger {
         return result;
     }
 
-    private static List<LocalTime> getUniqueSortedPointsOfTime(
-            Subtitles upperSubtitles,
-            Subtitles lowerSubtitles
-    ) throws InterruptedException {
-        Set<LocalTime> result = new TreeSet<>();
-
-        List<Subtitle> allSubtitles = ListUtils.union(upperSubtitles.getSubtitles(), lowerSubtitles.getSubtitles());
-        for (Subtitle subtitle : allSubtitles) {
-            if (Thread.interrupted()) {
-                throw new InterruptedException();
-            }
-
-            result.add(subtitle.getFrom());
-            result.add(subtitle.getTo());
-        }
-
-        return new ArrayList<>(result);
-    }
-
     /**
-     * Returns true if all the subtitles go consequentially meaning time points don't decrease. The result will be used
-     * to increase merging performance later.
+     * Returns all the points of time in milliseconds sorted and without duplicates. The points are collected into one
+     * array and then sorted, duplicates are removed in place after that.
      */
-    private static boolean consequentialSubtitles(Subtitles subtitles) {
-        for (int i = 0; i < subtitles.getSubtitles().size(); i++) {
-            Subtitle subtitle = subtitles.getSubtitles().get(i);
-            if (subtitle.getTo().isBefore(subtitle.getFrom())) {
-                return false;
-            }
+    private static int[] getUniqueSortedPointsOfTime(
+            SubtitleTimeline upperTimeline,
+            SubtitleTimeline lowerTimeline
+    ) throws InterruptedException {
+        int[] result = new int[2 * (upperTimeline.size() + lowerTimeline.size())];
 
-            if (i != subtitles.getSubtitles().size() - 1) {
-                Subtitle nextSubtitle = subtitles.getSubtitles().get(i + 1);
-                if (nextSubtitle.getFrom().isBefore(subtitle.getTo())) {
-                    return false;
+        int pointCount = 0;
+        for (SubtitleTimeline timeline : Arrays.asList(upperTimeline, lowerTimeline)) {
+            for (int i = 0; i < timeline.size(); i++) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
                 }
+
+                result[pointCount++] = timeline.getFromMillis(i);
+                result[pointCount++] = timeline.getToMillis(i);
             }
         }
 
-        return true;
-    }
-
-    /*
-     * For correctly formatted subtitles we can check only the current index and the next one (if there is one). But
-     * sometimes there can be subtitles that are overlapped in time and to deal with them we have to check all indices
-     * to the right. It's better to handle these situations differently because if we check only two indices instead of
-     * all indices to the right performance will be increased significantly (dozens of times, for example for 10 mb
-     * files initial merging would take around 100 ms instead of several seconds without this optimization).
-     */
-    @Nullable
-    private static Integer getIndexMatchingTime(
-            int currentIndex,
-            Subtitles subtitles,
-            LocalTime from,
-            LocalTime to,
-            boolean consequentialSubtitles
-    ) {
-        int topIndexToCheck;
-        if (consequentialSubtitles) {
-            topIndexToCheck = Integer.min(currentIndex + 1, subtitles.getSubtitles().size() - 1);
-        } else {
-            topIndexToCheck = subtitles.getSubtitles().size() - 1;
-        }
+        Arrays.sort(result);
 
-        for (int i = currentIndex; i <= topIndexToCheck; i++) {
-            if (subtitleMatchesTime(subtitles.getSubtitles().get(i), from, to)) {
-                return i;
+        int uniqueCount = 0;
+        for (int i = 0; i < result.length; i++) {
+            if (i == 0 || result[i] != result[i - 1]) {
+                result[uniqueCount++] = result[i];
             }
         }
 
-        return null;
-    }
-
-    private static boolean subtitleMatchesTime(Subtitle subtitle, LocalTime from, LocalTime to) {
-        boolean fromInside = !from.isBefore(subtitle.getFrom()) && !from.isAfter(subtitle.getTo());
-        boolean toInside = !to.isBefore(subtitle.getFrom()) && !to.isAfter(subtitle.getTo());
-
-        return fromInside && toInside;
+        return Arrays.copyOf(result, uniqueCount);
     }
 
     /**
@@ -259,7 +200,7 @@ public class SubtitleMerger {
      * lines for the source are equal.
      */
     private static boolean areConsecutive(MergerSubtitle previous, MergerSubtitle next, Source source) {
-        if (!Objects.equals(previous.getTo(), next.getFrom())) {
+        if (previous.getTo() != next.getFrom()) {
             return false;
         }
 
@@ -310,7 +251,7 @@ public class SubtitleMerger {
                 MergerSubtitle lastAddedSubtitle = result.get(result.size() - 1);
 
                 boolean canCombine = Objects.equals(lastAddedSubtitle.getLines(), currentSubtitle.getLines())
-                        && Objects.equals(lastAddedSubtitle.getTo(), currentSubtitle.getFrom());
+                        && lastAddedSubtitle.getTo() == currentSubtitle.getFrom();
                 if (canCombine) {
                     lastAddedSubtitle.setTo(currentSubtitle.getTo());
                     addCurrentSubtitle = false;
@@ -335,8 +276,8 @@ public class SubtitleMerger {
 
             result.add(
                     new Subtitle(
-                            mergedSubtitle.getFrom(),
-                            mergedSubtitle.getTo(),
+                            LocalTime.fromMillisOfDay(mergedSubtitle.getFrom()),
+                            LocalTime.fromMillisOfDay(mergedSubtitle.getTo()),
                             mergedSubtitle.getLines().stream().map(MergerSubtitleLine::getText).collect(toList())
                     )
             );
@@ -345,13 +286,81 @@ public class SubtitleMerger {
         return new Subtitles(result);
     }
 
+    /**
+     * This class keeps track of the subtitles from one source that are displayed at the current point of time. It's
+     * used for the sweep over the points of time in the initial merge - subtitles are sorted by their start once and
+     * then each one is added to the active set when the sweep reaches its start and is removed after its end. Thanks to
+     * that the merge takes O(n*log(n)) time even if the subtitles overlap each other.
+     */
+    private static class ActiveSubtitles {
+        static final int NO_INDEX = -1;
+
+        private SubtitleTimeline timeline;
+
+        /*
+         * Each element holds the start of the subtitle in the upper 32 bits and its index in the lower 32 bits so that
+         * the indices can be sorted by the start with a primitive sort.
+         */
+        private long[] startsAndIndices;
+
+        private int nextToAdd;
+
+        /*
+         * Indices of the subtitles that have started, the smallest index goes first. If several subtitles from the same
+         * source are displayed simultaneously, the one that goes first in the file is used. Subtitles that have ended
+         * are removed lazily, only when they get to the head of the queue, which is enough because only the head is
+         * returned.
+         */
+        private PriorityQueue<Integer> activeIndices;
+
+        ActiveSubtitles(SubtitleTimeline timeline) {
+            this.timeline = timeline;
+
+            startsAndIndices = new long[timeline.size()];
+            for (int i = 0; i < timeline.size(); i++) {
+                startsAndIndices[i] = ((long) timeline.getFromMillis(i) << 32) | i;
+            }
+            Arrays.sort(startsAndIndices);
+
+            nextToAdd = 0;
+            activeIndices = new PriorityQueue<>();
+        }
+
+        /**
+         * Moves the sweep to the given point of time and returns the index of the subtitle that should be displayed in
+         * the segment starting at this point or NO_INDEX if there is no such subtitle. Points of time have to be passed
+         * in the ascending order and the segment has to end at the next point of time among all the subtitle points.
+         */
+        int moveTo(int pointOfTime) {
+            while (nextToAdd < startsAndIndices.length) {
+                long startAndIndex = startsAndIndices[nextToAdd];
+                if ((int) (startAndIndex >>> 32) > pointOfTime) {
+                    break;
+                }
+
+                activeIndices.add((int) startAndIndex);
+                nextToAdd++;
+            }
+
+            /*
+             * Because every end of a subtitle is one of the points of time, a subtitle that hasn't ended at this point
+             * lasts at least until the next point and thus covers the whole segment.
+             */
+            while (!activeIndices.isEmpty() && timeline.getToMillis(activeIndices.peek()) <= pointOfTime) {
+                activeIndices.poll();
+            }
+
+            return !activeIndices.isEmpty() ? activeIndices.peek() : NO_INDEX;
+        }
+    }
+
     @AllArgsConstructor
     @Getter
     private static class MergerSubtitle {
-        private LocalTime from;
+        private int from;
 
         @Setter
-        private LocalTime to;
+        private int to;
 
         @Setter
         private List<MergerSubtitleLine> lines;
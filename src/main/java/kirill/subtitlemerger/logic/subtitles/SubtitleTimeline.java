@@ -0,0 +1,66 @@
+package kirill.subtitlemerger.logic.subtitles;
+
+import kirill.subtitlemerger.logic.subtitles.entities.Subtitle;
+import kirill.subtitlemerger.logic.subtitles.entities.Subtitles;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A compact columnar representation of subtitles that is used during the merge. Points of time are stored as
+ * milliseconds of the day in primitive arrays and lines of all the subtitles are stored in one list, so the merger can
+ * work with them without creating an object for each subtitle and each point of time and comparing LocalTime objects.
+ */
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+class SubtitleTimeline {
+    private int[] fromMillis;
+
+    private int[] toMillis;
+
+    private List<String> lines;
+
+    /**
+     * Lines of the subtitle with the index i are stored in the lines list from lineOffsets[i] (inclusive) to
+     * lineOffsets[i + 1] (exclusive), so the array has one more element than there are subtitles.
+     */
+    private int[] lineOffsets;
+
+    static SubtitleTimeline from(Subtitles subtitles) {
+        int size = subtitles.getSubtitles().size();
+
+        int[] fromMillis = new int[size];
+        int[] toMillis = new int[size];
+        List<String> lines = new ArrayList<>();
+        int[] lineOffsets = new int[size + 1];
+
+        for (int i = 0; i < size; i++) {
+            Subtitle subtitle = subtitles.getSubtitles().get(i);
+
+            fromMillis[i] = subtitle.getFrom().getMillisOfDay();
+            toMillis[i] = subtitle.getTo().getMillisOfDay();
+            lineOffsets[i] = lines.size();
+            lines.addAll(subtitle.getLines());
+        }
+        lineOffsets[size] = lines.size();
+
+        return new SubtitleTimeline(fromMillis, toMillis, lines, lineOffsets);
+    }
+
+    int size() {
+        return fromMillis.length;
+    }
+
+    int getFromMillis(int index) {
+        return fromMillis[index];
+    }
+
+    int getToMillis(int index) {
+        return toMillis[index];
+    }
+
+    List<String> getLines(int index) {
+        return lines.subList(lineOffsets[index], lineOffsets[index + 1]);
+    }
+}
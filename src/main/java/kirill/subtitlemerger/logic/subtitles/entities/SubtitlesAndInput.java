@@ -27,7 +27,7 @@ public class SubtitlesAndInput {
         Subtitles subtitles;
         boolean correctFormat;
         try {
-            subtitles = SubRipParser.from(new String(rawData, encoding));
+            subtitles = SubRipParser.from(rawData, encoding);
             correctFormat = true;
         } catch (SubtitleFormatException e) {
             subtitles = null;
@@ -0,0 +1,16 @@
+package kirill.subtitlemerger.logic.utils.process;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the standard output of a process while the process is running, see ProcessRunner::run.
+ */
+@FunctionalInterface
+public interface OutputReader<T> {
+    /**
+     * @param inputStream the standard output of the process, there is no need to close it or to read it to the end,
+     * ProcessRunner takes care of that.
+     */
+    T read(InputStream inputStream) throws IOException;
+}
@@ -0,0 +1,87 @@
+package kirill.subtitlemerger.logic.utils.process;
+
+import lombok.extern.apachecommons.CommonsLog;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class limits the number of processes running at the same time. Threads that want to start a process when the
+ * limit is reached wait in a queue and get their turn in the order of arrival.
+ */
+@CommonsLog
+class ProcessLimiter {
+    private ReentrantLock lock;
+
+    private Condition stateChanged;
+
+    /*
+     * The threads that are waiting for their turn, a thread can start its process only when it's at the head of the
+     * queue. Waking up all the threads on each change and letting only the head proceed guarantees the order, a
+     * condition alone doesn't because a newly arrived thread can take the lock before the signalled one.
+     */
+    private Deque<Thread> queue;
+
+    private int limit;
+
+    private int runningCount;
+
+    ProcessLimiter(int limit) {
+        lock = new ReentrantLock();
+        stateChanged = lock.newCondition();
+        queue = new ArrayDeque<>();
+        this.limit = limit;
+    }
+
+    void acquire() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            Thread thread = Thread.currentThread();
+            queue.addLast(thread);
+            try {
+                while (queue.peekFirst() != thread || runningCount >= limit) {
+                    stateChanged.await();
+                }
+            } catch (InterruptedException e) {
+                queue.remove(thread);
+                /* The thread could have been at the head so the next one may be able to proceed now. */
+                stateChanged.signalAll();
+                throw e;
+            }
+
+            queue.removeFirst();
+            runningCount++;
+            /* The limit can allow the next thread to start as well. */
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void release() {
+        lock.lock();
+        try {
+            if (runningCount == 0) {
+                log.error("there are no running processes to release, most likely a bug");
+                throw new IllegalStateException();
+            }
+
+            runningCount--;
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void setLimit(int limit) {
+        lock.lock();
+        try {
+            this.limit = limit;
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
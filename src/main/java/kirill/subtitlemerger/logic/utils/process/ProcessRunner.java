@@ -2,23 +2,43 @@ package kirill.subtitlemerger.logic.utils.process;
 
 import lombok.extern.apachecommons.CommonsLog;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.io.output.NullOutputStream;
 import org.apache.commons.io.output.StringBuilderWriter;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.FutureTask;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.*;
 
 @CommonsLog
 public class ProcessRunner {
+    public static final int DEFAULT_MAX_PROCESS_COUNT = 8;
+
+    /*
+     * Console output is read in separate threads (see the comment for the run method), the threads are taken from this
+     * pool so that they are not created for each process.
+     */
+    private static final ExecutorService OUTPUT_READERS = Executors.newCachedThreadPool(runnable -> {
+        Thread result = new Thread(runnable, "process-output-reader");
+        result.setDaemon(true);
+        return result;
+    });
+
+    private static final ProcessLimiter LIMITER = new ProcessLimiter(DEFAULT_MAX_PROCESS_COUNT);
+
+    /*
+     * The number of the last characters of the error output that are kept when the standard output is read separately.
+     */
+    private static final int ERROR_OUTPUT_TAIL_LENGTH = 16 * 1024;
+
     /**
      * This is a helper method to run native processes. The main feature of this class is its working with a console
      * output. The output is handled in a separate thread so the process can be properly interrupted. Otherwise if the
@@ -33,9 +53,17 @@ public class ProcessRunner {
     public static String run(List<String> arguments) throws ProcessException, InterruptedException {
         log.debug("run process " + StringUtils.join(arguments, " "));
 
-        Process process = startProcess(arguments);
-        String consoleOutput = readAllConsoleOutput(process);
-        waitForProcessTermination(process, consoleOutput);
+        /* The process won't start until the number of running processes drops below the limit. */
+        LIMITER.acquire();
+        String consoleOutput;
+        Process process;
+        try {
+            process = startProcess(arguments, true);
+            consoleOutput = readAllConsoleOutput(process);
+            waitForProcessTermination(process, consoleOutput);
+        } finally {
+            LIMITER.release();
+        }
 
         if (process.exitValue() != 0) {
             throw new ProcessException(ProcessException.Code.EXIT_VALUE_NOT_ZERO, consoleOutput);
@@ -49,9 +77,134 @@ public class ProcessRunner {
         return consoleOutput;
     }
 
-    private static Process startProcess(List<String> arguments) throws ProcessException {
+    /**
+     * This is a streaming variant of the method above for processes that produce a lot of output. The standard output
+     * is passed to the reader as it's being produced instead of being accumulated in memory first, and of the error
+     * output only the last characters are kept, they are used as the console output of the exceptions. Both outputs are
+     * read in separate threads, so interruptions work the same way as in the method above.
+     *
+     * @param arguments command line arguments to start the process
+     * @param outputReader reads the standard output of the process, whatever it doesn't read is skipped
+     * @return the result of the reader
+     * @throws ProcessException with different codes inside when errors happen, FAILED_TO_READ_OUTPUT if the reader has
+     * thrown an exception and the process has finished successfully
+     */
+    public static <T> T run(
+            List<String> arguments,
+            OutputReader<T> outputReader
+    ) throws ProcessException, InterruptedException {
+        return run(arguments, null, outputReader);
+    }
+
+    /**
+     * The same as the method above but also writes the given data to the standard input of the process (in a separate
+     * thread as well) and closes it afterwards, so the process can read its input from a pipe instead of a file.
+     */
+    public static <T> T run(
+            List<String> arguments,
+            @Nullable byte[] input,
+            OutputReader<T> outputReader
+    ) throws ProcessException, InterruptedException {
+        log.debug("run process " + StringUtils.join(arguments, " "));
+
+        LIMITER.acquire();
+        try {
+            Process process = startProcess(arguments, false);
+
+            ReadOutputTask<T> outputTask = new ReadOutputTask<>(process, outputReader);
+            ReadErrorOutputTailTask errorOutputTask = new ReadErrorOutputTailTask(process);
+            if (input != null) {
+                OUTPUT_READERS.execute(() -> writeInput(process, input));
+            }
+            OUTPUT_READERS.execute(outputTask);
+            OUTPUT_READERS.execute(errorOutputTask);
+
+            try {
+                return getResult(process, outputTask, errorOutputTask);
+            } catch (InterruptedException e) {
+                log.info("the process is going to be terminated because of the interruption");
+                process.destroyForcibly();
+                throw e;
+            } finally {
+                closeQuietly(process.getInputStream());
+                closeQuietly(process.getErrorStream());
+                closeQuietly(process.getOutputStream());
+            }
+        } finally {
+            LIMITER.release();
+        }
+    }
+
+    private static void writeInput(Process process, byte[] input) {
+        try (OutputStream outputStream = process.getOutputStream()) {
+            outputStream.write(input);
+        } catch (IOException e) {
+            /*
+             * The process may stop reading before the end (because of an error or an interruption), its exit value
+             * will tell what has happened better.
+             */
+            log.debug("stopped writing the input: " + ExceptionUtils.getMessage(e));
+        }
+    }
+
+    private static <T> T getResult(
+            Process process,
+            ReadOutputTask<T> outputTask,
+            ReadErrorOutputTailTask errorOutputTask
+    ) throws ProcessException, InterruptedException {
+        T result = null;
+        Throwable readerError = null;
+        try {
+            result = outputTask.get();
+        } catch (ExecutionException e) {
+            readerError = e.getCause();
+        }
+
+        String errorOutput;
+        try {
+            /* The task finishes when the process closes the error stream which usually happens when it terminates. */
+            errorOutput = errorOutputTask.get();
+            log.debug("process error output: " + errorOutput);
+        } catch (ExecutionException e) {
+            process.destroyForcibly();
+            log.error("failed to read the error output: " + ExceptionUtils.getStackTrace(e.getCause()));
+            throw new IllegalStateException();
+        }
+
+        waitForProcessTermination(process, errorOutput);
+
+        /* A non-zero exit value explains what has happened better than an error of the reader so it goes first. */
+        if (process.exitValue() != 0) {
+            throw new ProcessException(ProcessException.Code.EXIT_VALUE_NOT_ZERO, errorOutput);
+        }
+
+        if (readerError != null) {
+            if (readerError instanceof IOException) {
+                log.warn("failed to read the output: " + ExceptionUtils.getStackTrace(readerError));
+                throw new ProcessException(ProcessException.Code.FAILED_TO_READ_OUTPUT, errorOutput);
+            }
+
+            log.error("the reader has failed for an unexpected reason: " + ExceptionUtils.getStackTrace(readerError));
+            throw new IllegalStateException();
+        }
+
+        return result;
+    }
+
+    /**
+     * Sets the maximum number of processes that can run at the same time, the processes that are started when the limit
+     * is reached wait in a queue.
+     */
+    public static void setMaxProcessCount(int maxProcessCount) {
+        LIMITER.setLimit(maxProcessCount);
+    }
+
+    private static Process startProcess(
+            List<String> arguments,
+            boolean redirectErrorStream
+    ) throws ProcessException {
         ProcessBuilder processBuilder = new ProcessBuilder(arguments);
-        processBuilder.redirectErrorStream(true);
+        processBuilder.redirectErrorStream(redirectErrorStream);
 
         try {
             return processBuilder.start();
@@ -62,10 +215,7 @@ public class ProcessRunner {
 
     private static String readAllConsoleOutput(Process process) throws ProcessException, InterruptedException {
         ReadAllConsoleOutputTask task = new ReadAllConsoleOutputTask(process);
-
-        Thread thread = new Thread(task);
-        thread.setDaemon(true);
-        thread.start();
+        OUTPUT_READERS.execute(task);
 
         String result = null;
         try (
@@ -112,14 +262,25 @@ public class ProcessRunner {
         }
     }
 
-    private static void closeQuietly(InputStream inputStream) {
+    private static void closeQuietly(Closeable stream) {
         try {
-            inputStream.close();
+            stream.close();
         } catch (IOException e) {
             log.warn("failed to close the stream: " + ExceptionUtils.getStackTrace(e));
         }
     }
 
+    /*
+     * Is used when the reader has already failed, its error is more important than the one that happens here.
+     */
+    private static void skipQuietly(InputStream inputStream) {
+        try {
+            inputStream.transferTo(NullOutputStream.NULL_OUTPUT_STREAM);
+        } catch (IOException e) {
+            log.debug("stopped skipping the output: " + ExceptionUtils.getMessage(e));
+        }
+    }
+
     private static void waitForProcessTermination(
             Process process,
             String consoleOutput
@@ -162,4 +323,52 @@ public class ProcessRunner {
             });
         }
     }
+
+    private static class ReadOutputTask<T> extends FutureTask<T> {
+        ReadOutputTask(Process process, OutputReader<T> outputReader) {
+            super(() -> {
+                InputStream inputStream = process.getInputStream();
+
+                /*
+                 * The rest of the output has to be read anyway, otherwise the process may block when the pipe buffer
+                 * is full and the error output and the process itself will be waited for forever.
+                 */
+                T result;
+                try {
+                    /* The shield is here because some readers (Jackson for example) close the stream when done. */
+                    result = outputReader.read(new CloseShieldInputStream(inputStream));
+                } catch (Throwable e) {
+                    skipQuietly(inputStream);
+                    throw e;
+                }
+
+                inputStream.transferTo(NullOutputStream.NULL_OUTPUT_STREAM);
+
+                return result;
+            });
+        }
+    }
+
+    private static class ReadErrorOutputTailTask extends FutureTask<String> {
+        ReadErrorOutputTailTask(Process process) {
+            super(() -> {
+                TextTail result = new TextTail(ERROR_OUTPUT_TAIL_LENGTH);
+
+                try {
+                    InputStreamReader in = new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8);
+                    char[] buffer = new char[1024 * 4];
+
+                    int n;
+                    while ((n = in.read(buffer)) != IOUtils.EOF) {
+                        result.append(buffer, 0, n);
+                    }
+                } catch (IOException e) {
+                    /* It happens when the streams are closed because of an interruption, the tail is useful anyway. */
+                    log.debug("stopped reading the error output: " + ExceptionUtils.getMessage(e));
+                }
+
+                return result.toString();
+            });
+        }
+    }
 }
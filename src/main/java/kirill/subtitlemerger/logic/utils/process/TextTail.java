@@ -0,0 +1,51 @@
+package kirill.subtitlemerger.logic.utils.process;
+
+/**
+ * This class keeps only the last characters of the text appended to it, the earlier ones are discarded. It's used for
+ * the error output of processes that can write a lot to it (ffmpeg writes its progress there for example) so that the
+ * memory usage doesn't depend on the process running time while the last lines are kept for the diagnostics.
+ */
+class TextTail {
+    private char[] buffer;
+
+    /*
+     * The position in the buffer where the next character will be written.
+     */
+    private int end;
+
+    private int length;
+
+    private boolean truncated;
+
+    TextTail(int maxLength) {
+        buffer = new char[maxLength];
+    }
+
+    void append(char[] characters, int offset, int count) {
+        for (int i = offset; i < offset + count; i++) {
+            buffer[end] = characters[i];
+            end = (end + 1) % buffer.length;
+
+            if (length < buffer.length) {
+                length++;
+            } else {
+                truncated = true;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder(length + 4);
+        if (truncated) {
+            result.append("...\n");
+        }
+
+        int start = (end - length + buffer.length) % buffer.length;
+        for (int i = 0; i < length; i++) {
+            result.append(buffer[(start + i) % buffer.length]);
+        }
+
+        return result.toString();
+    }
+}
@@ -0,0 +1,289 @@
+package kirill.subtitlemerger.logic.videos;
+
+import lombok.extern.apachecommons.CommonsLog;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * This class stores data obtained from videos on the disk so that it doesn't have to be obtained with ffmpeg or ffprobe
+ * again. Each entry is a separate file, its name is made of the hash of the video path, the size and the modification
+ * time of the video and a key that tells the entries of one video apart, so if the video changes its old entries
+ * simply stop matching. When the total size of the entries exceeds the limit the least recently used entries are
+ * removed, the modification time of an entry's file is used as the time of the last access so that the order is
+ * preserved between launches.
+ */
+@CommonsLog
+class DiskCache {
+    private static final String TEMP_EXTENSION = "temp";
+
+    private File directory;
+
+    private String entryExtension;
+
+    private long maxSize;
+
+    /*
+     * Entry file names and their sizes in the order of access, the least recently used entries go first. The entries
+     * are loaded on the first access rather than in the constructor because listing the directory can take a while and
+     * the caches are created on the JavaFX application thread while the first access happens in a background task.
+     */
+    @Nullable
+    private LinkedHashMap<String, Long> entries;
+
+    /*
+     * Entry file names grouped by the video prefix so that the entries of a video can be found without going through
+     * all the entries. The entries that don't belong to any video are not here.
+     */
+    private Map<String, Set<String>> videoEntries;
+
+    private long totalSize;
+
+    /**
+     * @param maxSize the maximum total size of all the entries in bytes, 0 means that the cache is disabled.
+     */
+    DiskCache(File directory, String entryExtension, long maxSize) {
+        this.directory = directory;
+        this.entryExtension = entryExtension;
+        this.maxSize = maxSize;
+    }
+
+    /*
+     * Should be called at the beginning of each synchronized method that uses the entries.
+     */
+    private void loadEntries() {
+        if (entries != null) {
+            return;
+        }
+
+        entries = getEntries(directory, entryExtension);
+        videoEntries = new HashMap<>();
+        for (String entryName : entries.keySet()) {
+            addToVideoEntries(entryName);
+        }
+        totalSize = entries.values().stream().mapToLong(Long::longValue).sum();
+        removeExcessEntries();
+    }
+
+    private static LinkedHashMap<String, Long> getEntries(File directory, String entryExtension) {
+        LinkedHashMap<String, Long> result = new LinkedHashMap<>(16, 0.75f, true);
+
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return result;
+        }
+
+        /*
+         * The modification times are read once because the comparator is called many times and the times can change
+         * during sorting if another instance of the application uses the cache, which would break the sorting.
+         */
+        Map<File, Long> lastModifiedTimes = new HashMap<>();
+        for (File file : files) {
+            lastModifiedTimes.put(file, file.lastModified());
+        }
+        Arrays.sort(files, Comparator.comparing(lastModifiedTimes::get));
+        for (File file : files) {
+            if (file.getName().endsWith("." + entryExtension)) {
+                result.put(file.getName(), file.length());
+            } else if (file.getName().endsWith("." + TEMP_EXTENSION)) {
+                /* Temporary files are left only if the application has been closed during writing. */
+                deleteQuietly(file);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the data previously stored for the video with the given key if the video hasn't changed since then (its
+     * size and modification time are the same) or null otherwise.
+     */
+    @Nullable
+    synchronized byte[] get(File videoFile, long size, long lastModified, String key) {
+        loadEntries();
+        return readEntry(getEntryName(videoFile, size, lastModified, key));
+    }
+
+    synchronized void put(File videoFile, long size, long lastModified, String key, byte[] data) {
+        loadEntries();
+        if (data.length > maxSize) {
+            return;
+        }
+
+        /* Entries for the previous versions of the video won't be used anymore. */
+        removeEntries(getVideoPrefix(videoFile), getVideoVersion(size, lastModified));
+
+        writeEntry(getEntryName(videoFile, size, lastModified, key), data);
+    }
+
+    /**
+     * Returns the data stored with the given key by the method below. Such entries don't belong to any video, so the
+     * key should identify the data by itself (be a hash of the source data for example).
+     */
+    @Nullable
+    synchronized byte[] get(String key) {
+        loadEntries();
+        return readEntry(key + "." + entryExtension);
+    }
+
+    synchronized void put(String key, byte[] data) {
+        loadEntries();
+        if (data.length > maxSize) {
+            return;
+        }
+
+        writeEntry(key + "." + entryExtension, data);
+    }
+
+    @Nullable
+    private byte[] readEntry(String entryName) {
+        if (entries.get(entryName) == null) {
+            return null;
+        }
+
+        File entryFile = new File(directory, entryName);
+        try {
+            byte[] result = FileUtils.readFileToByteArray(entryFile);
+            if (!entryFile.setLastModified(System.currentTimeMillis())) {
+                log.debug("failed to update the access time of " + entryFile.getAbsolutePath());
+            }
+
+            return result;
+        } catch (IOException e) {
+            log.warn("failed to read the cache entry: " + ExceptionUtils.getStackTrace(e));
+            removeEntry(entryName);
+            return null;
+        }
+    }
+
+    private void writeEntry(String entryName, byte[] data) {
+        removeEntry(entryName);
+
+        File entryFile = new File(directory, entryName);
+        File tempFile = new File(directory, entryName + "." + TEMP_EXTENSION);
+        try {
+            FileUtils.writeByteArrayToFile(tempFile, data);
+            Files.move(tempFile.toPath(), entryFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.warn("failed to write the cache entry: " + ExceptionUtils.getStackTrace(e));
+            deleteQuietly(tempFile);
+            return;
+        }
+
+        entries.put(entryName, (long) data.length);
+        addToVideoEntries(entryName);
+        totalSize += data.length;
+        removeExcessEntries();
+    }
+
+    /**
+     * Removes all the entries for the video, should be called when the video is known to be changed.
+     */
+    synchronized void invalidate(File videoFile) {
+        loadEntries();
+        removeEntries(getVideoPrefix(videoFile), null);
+    }
+
+    private String getEntryName(File videoFile, long size, long lastModified, String key) {
+        return getVideoPrefix(videoFile) + getVideoVersion(size, lastModified) + key + "." + entryExtension;
+    }
+
+    private static String getVideoPrefix(File videoFile) {
+        return DigestUtils.sha1Hex(videoFile.getAbsolutePath()) + "_";
+    }
+
+    /**
+     * Returns the video prefix of the entry or null if the entry doesn't belong to any video. The keys of such entries
+     * are hashes that are longer than the hash in the prefix so they don't have an underscore in its place.
+     */
+    @Nullable
+    private static String getVideoPrefix(String entryName) {
+        int prefixLength = 40 + 1;
+        if (entryName.length() <= prefixLength || entryName.charAt(prefixLength - 1) != '_') {
+            return null;
+        }
+
+        return entryName.substring(0, prefixLength);
+    }
+
+    private void addToVideoEntries(String entryName) {
+        String videoPrefix = getVideoPrefix(entryName);
+        if (videoPrefix != null) {
+            videoEntries.computeIfAbsent(videoPrefix, key -> new HashSet<>()).add(entryName);
+        }
+    }
+
+    private void removeFromVideoEntries(String entryName) {
+        String videoPrefix = getVideoPrefix(entryName);
+        if (videoPrefix == null) {
+            return;
+        }
+
+        Set<String> entryNames = videoEntries.get(videoPrefix);
+        if (entryNames != null) {
+            entryNames.remove(entryName);
+            if (entryNames.isEmpty()) {
+                videoEntries.remove(videoPrefix);
+            }
+        }
+    }
+
+    private static String getVideoVersion(long size, long lastModified) {
+        return size + "_" + lastModified + "_";
+    }
+
+    /**
+     * Removes the entries for the video with the given prefix except for the entries of the given video version (if
+     * it's not null) because there can be several entries for one version of the video, one for each key.
+     */
+    private void removeEntries(String videoPrefix, @Nullable String versionToKeep) {
+        Set<String> entryNames = videoEntries.get(videoPrefix);
+        if (entryNames == null) {
+            return;
+        }
+
+        List<String> entriesToRemove = new ArrayList<>();
+        for (String entryName : entryNames) {
+            if (versionToKeep == null || !entryName.startsWith(videoPrefix + versionToKeep)) {
+                entriesToRemove.add(entryName);
+            }
+        }
+
+        for (String entryName : entriesToRemove) {
+            removeEntry(entryName);
+        }
+    }
+
+    private void removeExcessEntries() {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (totalSize > maxSize && iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            totalSize -= entry.getValue();
+            iterator.remove();
+            removeFromVideoEntries(entry.getKey());
+            deleteQuietly(new File(directory, entry.getKey()));
+        }
+    }
+
+    private void removeEntry(String entryName) {
+        Long size = entries.remove(entryName);
+        if (size != null) {
+            removeFromVideoEntries(entryName);
+            totalSize -= size;
+            deleteQuietly(new File(directory, entryName));
+        }
+    }
+
+    private static void deleteQuietly(File file) {
+        if (file.exists() && !file.delete()) {
+            log.warn("failed to delete the cache file " + file.getAbsolutePath());
+        }
+    }
+}
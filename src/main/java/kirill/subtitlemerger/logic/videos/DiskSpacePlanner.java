@@ -0,0 +1,261 @@
+package kirill.subtitlemerger.logic.videos;
+
+import kirill.subtitlemerger.logic.videos.entities.FileStorePlan;
+import lombok.extern.apachecommons.CommonsLog;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.util.*;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * This class plans the temporary space for injecting subtitles into videos. Each injection creates a temporary copy of
+ * the video, preferably on the same file store as the video so that the original can be replaced with a rename. If
+ * the file store can't hold even one copy, the copy is made on another file store of the selected videos that can and
+ * the original is replaced by copying. With several injections running at the same time each file store has to hold
+ * the copies of several videos at once. The plan is shown to the user before merging, and while merging the space is
+ * reserved before each injection and released after it so that the injections on a file store without enough space
+ * wait for each other instead of filling the disk. The free space is measured only once when the plan is created, the
+ * changes made by other programs are not taken into account.
+ */
+@CommonsLog
+public class DiskSpacePlanner {
+    /*
+     * The file stores for the temporary copies of the videos. Videos that failed to get their file stores are not in
+     * the map and aren't limited in any way.
+     */
+    private Map<File, Store> videoStores;
+
+    /*
+     * Directories for the temporary copies of the videos that can't be copied to their own file stores.
+     */
+    private Map<File, File> otherTempDirectories;
+
+    private List<Store> stores;
+
+    /**
+     * @param videoFiles the videos that are going to be processed.
+     * @param workerCount the maximum number of videos that can be processed at the same time.
+     */
+    public static DiskSpacePlanner create(List<File> videoFiles, int workerCount) {
+        Map<File, String> videoStoreNames = new HashMap<>();
+        Map<File, Long> videoSizes = new HashMap<>();
+        Map<String, Long> storeFreeSpaces = new HashMap<>();
+
+        for (File videoFile : videoFiles) {
+            try {
+                FileStore fileStore = Files.getFileStore(videoFile.toPath());
+                String storeName = fileStore.toString();
+                if (!storeFreeSpaces.containsKey(storeName)) {
+                    storeFreeSpaces.put(storeName, fileStore.getUsableSpace());
+                }
+                videoStoreNames.put(videoFile, storeName);
+                videoSizes.put(videoFile, videoFile.length());
+            } catch (IOException e) {
+                log.warn("failed to get the file store of " + videoFile.getAbsolutePath() + ", skip it: "
+                        + ExceptionUtils.getStackTrace(e));
+            }
+        }
+
+        return new DiskSpacePlanner(videoFiles, videoStoreNames, videoSizes, storeFreeSpaces, workerCount);
+    }
+
+    DiskSpacePlanner(
+            List<File> videoFiles,
+            Map<File, String> videoStoreNames,
+            Map<File, Long> videoSizes,
+            Map<String, Long> storeFreeSpaces,
+            int workerCount
+    ) {
+        videoStores = new HashMap<>();
+        otherTempDirectories = new HashMap<>();
+        Map<String, Store> storesByName = new LinkedHashMap<>();
+
+        for (File videoFile : videoFiles) {
+            String storeName = videoStoreNames.get(videoFile);
+            if (storeName != null && !storesByName.containsKey(storeName)) {
+                File directory = videoFile.getAbsoluteFile().getParentFile();
+                storesByName.put(storeName, new Store(storeName, storeFreeSpaces.get(storeName), directory));
+            }
+        }
+
+        for (File videoFile : videoFiles) {
+            String storeName = videoStoreNames.get(videoFile);
+            if (storeName == null) {
+                continue;
+            }
+
+            long size = videoSizes.get(videoFile);
+            Store ownStore = storesByName.get(storeName);
+            Store store = getTempStore(ownStore, size, storesByName.values());
+            store.videoSizes.put(videoFile, size);
+            videoStores.put(videoFile, store);
+            if (store != ownStore) {
+                otherTempDirectories.put(videoFile, store.directory);
+            }
+        }
+
+        /* The file stores that don't hold any temporary copies are of no interest. */
+        stores = storesByName.values().stream().filter(store -> !store.videoSizes.isEmpty()).collect(toList());
+        for (Store store : stores) {
+            store.requiredSpace = store.videoSizes.values().stream()
+                    .sorted(Comparator.reverseOrder())
+                    .limit(Math.max(workerCount, 1))
+                    .mapToLong(Long::longValue)
+                    .sum();
+        }
+    }
+
+    /*
+     * Returns the file store of the video if it can hold the copy and otherwise the file store with the most free space
+     * among the ones that can. If there are no such stores the copy stays on the file store of the video, the user will
+     * see that there is not enough space.
+     */
+    private static Store getTempStore(Store videoStore, long size, Collection<Store> allStores) {
+        if (videoStore.freeSpace >= size) {
+            return videoStore;
+        }
+
+        return allStores.stream()
+                .filter(store -> store.freeSpace >= size)
+                .max(Comparator.comparingLong(store -> store.freeSpace))
+                .orElse(videoStore);
+    }
+
+    /**
+     * Returns the directory where the temporary copy of the video should be created. It's the directory of the video
+     * itself unless its file store doesn't have enough space, then it's the directory of another selected video.
+     */
+    public File getTempVideoDirectory(File videoFile) {
+        File result = otherTempDirectories.get(videoFile);
+        if (result != null) {
+            return result;
+        }
+
+        return videoFile.getAbsoluteFile().getParentFile();
+    }
+
+    public List<FileStorePlan> getPlans() {
+        return stores.stream()
+                .map(store -> new FileStorePlan(
+                        store.name,
+                        store.videoSizes.size(),
+                        store.requiredSpace,
+                        store.freeSpace
+                ))
+                .collect(toList());
+    }
+
+    public boolean isEnoughSpace() {
+        return stores.stream().allMatch(store -> store.requiredSpace <= store.freeSpace);
+    }
+
+    /**
+     * Reserves the space for the temporary copy of the video if it's available right now and returns whether it has
+     * been reserved.
+     */
+    public boolean tryReserve(File videoFile) {
+        Store store = videoStores.get(videoFile);
+        if (store == null) {
+            return true;
+        }
+
+        synchronized (store) {
+            return store.tryReserve(videoFile);
+        }
+    }
+
+    /**
+     * Reserves the space for the temporary copy of the video, waiting for other injections on the same file store to
+     * release their space if necessary. If the space is not enough even without other injections it's reserved anyway
+     * because the user has agreed to proceed.
+     */
+    public void reserve(File videoFile) throws InterruptedException {
+        Store store = videoStores.get(videoFile);
+        if (store == null) {
+            return;
+        }
+
+        synchronized (store) {
+            while (!store.tryReserve(videoFile)) {
+                store.wait();
+            }
+        }
+    }
+
+    /**
+     * Releases the space reserved for the video, should be called after the injection whether it has succeeded or not.
+     */
+    public void release(File videoFile) {
+        Store store = videoStores.get(videoFile);
+        if (store == null) {
+            return;
+        }
+
+        synchronized (store) {
+            if (!store.reservedVideos.remove(videoFile)) {
+                log.error("space for " + videoFile.getAbsolutePath() + " hasn't been reserved, most likely a bug");
+                throw new IllegalStateException();
+            }
+
+            store.availableSpace += store.videoSizes.get(videoFile);
+            store.notifyAll();
+        }
+    }
+
+    private static class Store {
+        private String name;
+
+        private long freeSpace;
+
+        /*
+         * The directory of the first video on the file store, it's used for the temporary copies of the videos from
+         * other file stores.
+         */
+        private File directory;
+
+        private long requiredSpace;
+
+        private Map<File, Long> videoSizes;
+
+        /*
+         * The free space minus the space reserved at the moment, can be negative if the user has decided to proceed
+         * without enough space.
+         */
+        private long availableSpace;
+
+        private Set<File> reservedVideos;
+
+        Store(String name, long freeSpace, File directory) {
+            this.name = name;
+            this.freeSpace = freeSpace;
+            this.directory = directory;
+            videoSizes = new HashMap<>();
+            availableSpace = freeSpace;
+            reservedVideos = new HashSet<>();
+        }
+
+        /*
+         * Should be called while holding the lock of the store.
+         */
+        private boolean tryReserve(File videoFile) {
+            if (reservedVideos.contains(videoFile)) {
+                log.error("space for " + videoFile.getAbsolutePath() + " is already reserved, most likely a bug");
+                throw new IllegalStateException();
+            }
+
+            long size = videoSizes.get(videoFile);
+            if (!reservedVideos.isEmpty() && availableSpace < size) {
+                return false;
+            }
+
+            reservedVideos.add(videoFile);
+            availableSpace -= size;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package kirill.subtitlemerger.logic.videos;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * This class remembers which subtitles have been merged into which files so that merging can be skipped right away
+ * for the files that haven't changed since then, otherwise the subtitles have to be loaded, merged and compared with
+ * the ones in the file first. Each merge is identified by a fingerprint of its inputs and settings, and the
+ * fingerprints are stored for each output file (a video or a subtitle file) in the same way the video info is cached,
+ * so the fingerprints of a file stop matching as soon as the file changes.
+ */
+public class MergeManifest {
+    /**
+     * Has to be increased whenever the merged subtitles for the same inputs change (the merge itself, the writing of
+     * the result or the processing before injecting), then all the previous fingerprints stop matching.
+     */
+    public static final int ALGORITHM_VERSION = 1;
+
+    private static final String KEY = "fingerprints";
+
+    private DiskCache diskCache;
+
+    /**
+     * @param maxSize the maximum total size of all the entries in bytes, 0 means that the manifest is disabled.
+     */
+    public MergeManifest(File directory, long maxSize) {
+        diskCache = new DiskCache(directory, "manifest", maxSize);
+    }
+
+    /**
+     * Returns the hash that identifies the subtitles used for merging. The encoding is a part of the hash because the
+     * result depends on it as well.
+     */
+    public static String getInputHash(byte[] rawData, Charset encoding) {
+        return DigestUtils.sha256Hex(encoding.name() + "\n" + DigestUtils.sha256Hex(rawData));
+    }
+
+    public static String getFingerprint(String upperInputHash, String lowerInputHash, boolean plainTextSubtitles) {
+        return DigestUtils.sha256Hex(
+                ALGORITHM_VERSION + "\n" + upperInputHash + "\n" + lowerInputHash + "\n" + plainTextSubtitles
+        );
+    }
+
+    /**
+     * Returns the fingerprints of the merges stored for the file if the file hasn't changed since then or an empty set
+     * otherwise. A video can have several fingerprints because several merged streams can be injected into it.
+     */
+    public Set<String> getFingerprints(File outputFile) {
+        Set<String> result = new HashSet<>();
+
+        if (!outputFile.exists()) {
+            return result;
+        }
+
+        byte[] data = diskCache.get(outputFile, outputFile.length(), outputFile.lastModified(), KEY);
+        if (data != null) {
+            result.addAll(Arrays.asList(StringUtils.split(new String(data, StandardCharsets.UTF_8), '\n')));
+        }
+
+        return result;
+    }
+
+    public boolean contains(File outputFile, String fingerprint) {
+        return getFingerprints(outputFile).contains(fingerprint);
+    }
+
+    /**
+     * Stores the fingerprints for the current version of the file, should be called right after the file is written.
+     */
+    public void put(File outputFile, Set<String> fingerprints) {
+        byte[] data = String.join("\n", fingerprints).getBytes(StandardCharsets.UTF_8);
+        diskCache.put(outputFile, outputFile.length(), outputFile.lastModified(), KEY, data);
+    }
+}
@@ -0,0 +1,98 @@
+package kirill.subtitlemerger.logic.videos;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class stores the results of Ffmpeg::getProcessedSubtitles so that ffmpeg doesn't have to be run again for the
+ * same text. The entries are addressed by the hash of the text, the codec and the ffmpeg executable (another version
+ * of ffmpeg may process the text differently), so identical texts share one entry no matter which video they are going
+ * to be injected into. The recently used entries are kept in memory and, if the
+ * directory is provided, all the entries are stored on the disk as well so that they are available after a restart.
+ */
+public class ProcessedSubtitleCache {
+    private long maxMemorySize;
+
+    /*
+     * Hashes and the processed subtitles in the order of access, the least recently used entries go first.
+     */
+    private LinkedHashMap<String, byte[]> memoryEntries;
+
+    private long memorySize;
+
+    @Nullable
+    private DiskCache diskCache;
+
+    /**
+     * @param maxMemorySize the maximum total size of the entries kept in memory in bytes.
+     * @param directory the directory to store the entries on the disk, null means that they are kept only in memory.
+     * @param maxDiskSize the maximum total size of the entries on the disk in bytes.
+     */
+    public ProcessedSubtitleCache(long maxMemorySize, @Nullable File directory, long maxDiskSize) {
+        this.maxMemorySize = maxMemorySize;
+        memoryEntries = new LinkedHashMap<>(16, 0.75f, true);
+        if (directory != null) {
+            diskCache = new DiskCache(directory, "processed", maxDiskSize);
+        }
+    }
+
+    /**
+     * Returns the subtitles previously processed by ffmpeg from the given text with the given codec or null if there
+     * are no such subtitles in the cache.
+     *
+     * @param ffmpegKey the key of the ffmpeg executable, see Ffmpeg::getExecutableKey.
+     */
+    @Nullable
+    public synchronized byte[] get(String originalText, String codec, String ffmpegKey) {
+        String key = getKey(originalText, codec, ffmpegKey);
+
+        byte[] result = memoryEntries.get(key);
+        if (result != null || diskCache == null) {
+            return result;
+        }
+
+        result = diskCache.get(key);
+        if (result != null) {
+            putToMemory(key, result);
+        }
+
+        return result;
+    }
+
+    public synchronized void put(String originalText, String codec, String ffmpegKey, byte[] processedSubtitles) {
+        String key = getKey(originalText, codec, ffmpegKey);
+
+        putToMemory(key, processedSubtitles);
+        if (diskCache != null) {
+            diskCache.put(key, processedSubtitles);
+        }
+    }
+
+    private static String getKey(String originalText, String codec, String ffmpegKey) {
+        return DigestUtils.sha256Hex((ffmpegKey + "\n" + codec + "\n" + originalText).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void putToMemory(String key, byte[] processedSubtitles) {
+        if (processedSubtitles.length > maxMemorySize) {
+            return;
+        }
+
+        byte[] previous = memoryEntries.put(key, processedSubtitles);
+        if (previous != null) {
+            memorySize -= previous.length;
+        }
+        memorySize += processedSubtitles.length;
+
+        Iterator<Map.Entry<String, byte[]>> iterator = memoryEntries.entrySet().iterator();
+        while (memorySize > maxMemorySize && iterator.hasNext()) {
+            memorySize -= iterator.next().getValue().length;
+            iterator.remove();
+        }
+    }
+}
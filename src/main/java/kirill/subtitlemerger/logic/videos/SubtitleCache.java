@@ -0,0 +1,43 @@
+package kirill.subtitlemerger.logic.videos;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+
+/**
+ * This class stores subtitles extracted from videos on the disk so that they don't have to be extracted with ffmpeg
+ * again, which can take minutes for large videos. There is an entry for each subtitle stream of a video.
+ */
+public class SubtitleCache {
+    private DiskCache diskCache;
+
+    /**
+     * @param maxSize the maximum total size of all the entries in bytes, 0 means that the cache is disabled.
+     */
+    public SubtitleCache(File directory, long maxSize) {
+        diskCache = new DiskCache(directory, "subtitles", maxSize);
+    }
+
+    /**
+     * Returns the subtitles previously extracted from the given stream of the video if the video hasn't changed since
+     * then or null otherwise. The size and the modification time are passed explicitly because the caller usually has
+     * them already (see the Video class).
+     */
+    @Nullable
+    public byte[] get(File videoFile, long size, long lastModified, int ffmpegStreamIndex) {
+        String key = Integer.toString(ffmpegStreamIndex);
+        return diskCache.get(videoFile, size, lastModified, key);
+    }
+
+    public void put(File videoFile, long size, long lastModified, int ffmpegStreamIndex, byte[] rawSubtitles) {
+        String key = Integer.toString(ffmpegStreamIndex);
+        diskCache.put(videoFile, size, lastModified, key, rawSubtitles);
+    }
+
+    /**
+     * Removes all the entries for the video, should be called when the video is known to be changed.
+     */
+    public void invalidate(File videoFile) {
+        diskCache.invalidate(videoFile);
+    }
+}
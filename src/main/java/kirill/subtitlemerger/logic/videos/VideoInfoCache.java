@@ -0,0 +1,48 @@
+package kirill.subtitlemerger.logic.videos;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class stores the video info returned by ffprobe on the disk so that opening a directory again doesn't require
+ * running ffprobe for the videos that haven't changed. The info is stored in the form of the json text produced by
+ * ffprobe, an entry for a changed video is replaced on the next put and the least recently used entries are removed
+ * when the total size exceeds the limit.
+ */
+public class VideoInfoCache {
+    private static final String KEY = "info";
+
+    private DiskCache diskCache;
+
+    /**
+     * @param maxSize the maximum total size of all the entries in bytes, 0 means that the cache is disabled.
+     */
+    public VideoInfoCache(File directory, long maxSize) {
+        diskCache = new DiskCache(directory, "json", maxSize);
+    }
+
+    /**
+     * Returns the json text previously obtained with ffprobe for the video if the video hasn't changed since then or
+     * null otherwise. The size and the modification time are passed explicitly because the caller usually has them
+     * already.
+     */
+    @Nullable
+    public String get(File videoFile, long size, long lastModified) {
+        byte[] data = diskCache.get(videoFile, size, lastModified, KEY);
+        if (data == null) {
+            return null;
+        }
+
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    public void put(File videoFile, long size, long lastModified, String json) {
+        diskCache.put(videoFile, size, lastModified, KEY, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void invalidate(File videoFile) {
+        diskCache.invalidate(videoFile);
+    }
+}
@@ -2,26 +2,27 @@ package kirill.subtitlemerger.logic.videos;
 
 import com.neovisionaries.i18n.LanguageAlpha3Code;
 import kirill.subtitlemerger.logic.LogicConstants;
+import kirill.subtitlemerger.logic.ffmpeg.Ffmpeg;
 import kirill.subtitlemerger.logic.ffmpeg.FfmpegException;
 import kirill.subtitlemerger.logic.ffmpeg.Ffprobe;
 import kirill.subtitlemerger.logic.ffmpeg.json.JsonFfprobeVideoInfo;
 import kirill.subtitlemerger.logic.ffmpeg.json.JsonStream;
 import kirill.subtitlemerger.logic.subtitles.entities.SubtitleFormat;
-import kirill.subtitlemerger.logic.utils.file_validation.FileValidator;
-import kirill.subtitlemerger.logic.utils.file_validation.InputFileInfo;
-import kirill.subtitlemerger.logic.utils.file_validation.InputFileNotValidReason;
-import kirill.subtitlemerger.logic.utils.file_validation.InputFileValidationOptions;
 import kirill.subtitlemerger.logic.videos.entities.BuiltInSubtitleOption;
+import kirill.subtitlemerger.logic.videos.entities.SubtitleOption;
 import kirill.subtitlemerger.logic.videos.entities.SubtitleOptionNotValidReason;
 import kirill.subtitlemerger.logic.videos.entities.Video;
 import lombok.extern.apachecommons.CommonsLog;
 import org.apache.commons.collections4.MapUtils;
+import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import static kirill.subtitlemerger.logic.videos.entities.VideoNotValidReason.*;
 
@@ -29,42 +30,90 @@ import static kirill.subtitlemerger.logic.videos.entities.VideoNotValidReason.*;
 public class Videos {
     /**
      * Returns information on the given file. Not that it doesn't load subtitles because it's a pretty time-consuming
-     * operation.
+     * operation. The file attributes should be read by the caller, it's done this way so that the file system is
+     * requested only once for each file, which matters for network drives.
      */
-    public static Video getVideo(File file, List<String> allowedExtensions, Ffprobe ffprobe) {
-        InputFileValidationOptions validationOptions = InputFileValidationOptions.builder()
-                .allowedExtensions(allowedExtensions)
-                .allowEmpty(true)
-                .build();
-        InputFileInfo fileInfo = FileValidator.getInputFileInfo(file.getAbsolutePath(), validationOptions);
-        if (fileInfo.getNotValidReason() == InputFileNotValidReason.NO_EXTENSION) {
-            return new Video(file, NO_EXTENSION, null, null);
-        } else if (fileInfo.getNotValidReason() == InputFileNotValidReason.NOT_ALLOWED_EXTENSION) {
-            return new Video(file, NOT_ALLOWED_EXTENSION, null, null);
+    public static Video getVideo(
+            File file,
+            BasicFileAttributes attributes,
+            List<String> allowedExtensions,
+            Ffprobe ffprobe,
+            VideoInfoCache videoInfoCache
+    ) throws InterruptedException {
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+
+        String extension = FilenameUtils.getExtension(file.getName());
+        if (StringUtils.isBlank(extension)) {
+            return new Video(file, size, lastModified, NO_EXTENSION, null, null, null);
+        } else if (!allowedExtensions.contains(extension)) {
+            return new Video(file, size, lastModified, NOT_ALLOWED_EXTENSION, null, null, null);
         }
         /*
-         * There can be other errors if the file was removed or turned into a directory between the selection and the
-         * validation but we'll just let them be and let ffprobe return an error. Because these errors can happen only
-         * if the user causes them on purpose, so I think it's not worthy to handle these situations in any special way.
+         * There can be other errors if the file was removed or turned into a directory after its attributes have been
+         * read but we'll just let them be and let ffprobe return an error. Because these errors can happen only if the
+         * user causes them on purpose, so I think it's not worthy to handle these situations in any special way.
          */
 
         JsonFfprobeVideoInfo ffprobeInfo;
         try {
-            ffprobeInfo = ffprobe.getVideoInfo(file);
+            ffprobeInfo = getVideoInfo(file, size, lastModified, ffprobe, videoInfoCache);
         } catch (FfmpegException e) {
             log.warn("failed to get ffprobe info: " + e.getCode() + ", console output " + e.getConsoleOutput());
-            return new Video(file, FFPROBE_FAILED, null, null);
-        } catch (InterruptedException e) {
-            log.error("the process can't be interrupted, most likely a bug");
-            throw new IllegalStateException();
+            return new Video(file, size, lastModified, FFPROBE_FAILED, null, null, null);
         }
 
         String format = ffprobeInfo.getFormat().getFormatName();
         if (!LogicConstants.ALLOWED_VIDEO_FORMATS.contains(format)) {
-            return new Video(file, NOT_ALLOWED_FORMAT, format, null);
+            return new Video(file, size, lastModified, NOT_ALLOWED_FORMAT, format, null, null);
         }
 
-        return new Video(file, null, format, new ArrayList<>(getSubtitleOptions(ffprobeInfo)));
+        List<SubtitleOption> options = new ArrayList<>(getSubtitleOptions(ffprobeInfo));
+        Long durationMillis = getDurationMillis(ffprobeInfo.getFormat().getDuration());
+        return new Video(file, size, lastModified, null, format, durationMillis, options);
+    }
+
+    @Nullable
+    private static Long getDurationMillis(@Nullable String duration) {
+        if (duration == null) {
+            return null;
+        }
+
+        try {
+            long result = Math.round(Double.parseDouble(duration) * 1000);
+            return result > 0 ? result : null;
+        } catch (NumberFormatException e) {
+            log.warn("failed to parse the duration " + duration);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the video info from the cache if the video hasn't changed since the info was stored and runs ffprobe
+     * otherwise.
+     */
+    private static JsonFfprobeVideoInfo getVideoInfo(
+            File file,
+            long size,
+            long lastModified,
+            Ffprobe ffprobe,
+            VideoInfoCache videoInfoCache
+    ) throws FfmpegException, InterruptedException {
+        String cachedJson = videoInfoCache.get(file, size, lastModified);
+        if (cachedJson != null) {
+            try {
+                return Ffprobe.parseVideoInfo(cachedJson);
+            } catch (FfmpegException e) {
+                log.warn("failed to convert the cached video info, the entry will be replaced");
+                videoInfoCache.invalidate(file);
+            }
+        }
+
+        String json = ffprobe.getVideoInfoJson(file);
+        JsonFfprobeVideoInfo result = Ffprobe.parseVideoInfo(json);
+        videoInfoCache.put(file, size, lastModified, json);
+
+        return result;
     }
 
     public static List<BuiltInSubtitleOption> getSubtitleOptions(JsonFfprobeVideoInfo ffprobeInfo) {
@@ -91,7 +140,8 @@ public class Videos {
                             codec,
                             getLanguage(stream),
                             getTitle(stream),
-                            isDefaultDisposition(stream)
+                            isDefaultDisposition(stream),
+                            getMergedDigest(stream)
                     )
             );
         }
@@ -141,6 +191,21 @@ public class Videos {
         return stream.getTags().get("title");
     }
 
+    @Nullable
+    private static String getMergedDigest(JsonStream stream) {
+        if (MapUtils.isEmpty(stream.getTags())) {
+            return null;
+        }
+
+        for (Map.Entry<String, String> tag : stream.getTags().entrySet()) {
+            if (Ffmpeg.SUBTITLE_DIGEST_TAG.equalsIgnoreCase(tag.getKey())) {
+                return tag.getValue();
+            }
+        }
+
+        return null;
+    }
+
     private static boolean isDefaultDisposition(JsonStream stream) {
         return stream.getDisposition().getDefaultDisposition() == 1;
     }
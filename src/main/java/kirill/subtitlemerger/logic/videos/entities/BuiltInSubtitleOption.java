@@ -5,6 +5,7 @@ import kirill.subtitlemerger.logic.subtitles.entities.SubtitleFormat;
 import kirill.subtitlemerger.logic.subtitles.entities.SubtitlesAndInput;
 import lombok.Getter;
 import lombok.extern.apachecommons.CommonsLog;
+import org.jetbrains.annotations.Nullable;
 
 @CommonsLog
 @Getter
@@ -30,6 +31,13 @@ public class BuiltInSubtitleOption extends SubtitleOption {
 
     private boolean merged;
 
+    /**
+     * The digest of the merged subtitles from the stream tags, it's null for the streams that are not merged and for the
+     * ones merged by the older versions of the application that didn't write the digest.
+     */
+    @Nullable
+    private String mergedDigest;
+
     public BuiltInSubtitleOption(
             int ffmpegIndex,
             SubtitlesAndInput subtitlesAndInput,
@@ -38,7 +46,8 @@ public class BuiltInSubtitleOption extends SubtitleOption {
             String codec,
             LanguageAlpha3Code language,
             String title,
-            boolean defaultDisposition
+            boolean defaultDisposition,
+            @Nullable String mergedDigest
     ) {
         super("ffmpeg-" + ffmpegIndex, subtitlesAndInput, notValidReason);
 
@@ -50,6 +59,7 @@ public class BuiltInSubtitleOption extends SubtitleOption {
         this.defaultDisposition = defaultDisposition;
 
         merged  = title != null && title.matches(MERGED_SUBTITLE_REGEXP);
+        this.mergedDigest = merged ? mergedDigest : null;
     }
 
     public void disableDefaultDisposition() {
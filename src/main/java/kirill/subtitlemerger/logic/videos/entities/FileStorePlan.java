@@ -0,0 +1,27 @@
+package kirill.subtitlemerger.logic.videos.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * How much temporary space the injections need on one file store.
+ */
+@AllArgsConstructor
+@Getter
+public class FileStorePlan {
+    private String name;
+
+    private int videoCount;
+
+    /**
+     * The largest total size of the temporary videos that can exist at the same time, that is the sum of the largest
+     * videos that can be processed simultaneously.
+     */
+    private long requiredSpace;
+
+    private long freeSpace;
+
+    public boolean isEnoughSpace() {
+        return requiredSpace <= freeSpace;
+    }
+}
@@ -2,6 +2,7 @@ package kirill.subtitlemerger.logic.videos.entities;
 
 import lombok.Getter;
 import lombok.extern.apachecommons.CommonsLog;
+import org.jetbrains.annotations.Nullable;
 import org.joda.time.LocalDateTime;
 
 import java.io.File;
@@ -21,6 +22,20 @@ public class Video {
 
     private File file;
 
+    /*
+     * The size and the modification time are kept here instead of being requested from the file system each time
+     * because a request can take a while for network drives. They should be updated when the video is modified by the
+     * application.
+     */
+    private long size;
+
+    /*
+     * The raw modification time is used for the cache keys and the one below for showing to the user.
+     */
+    private long lastModifiedMillis;
+
+    private LocalDateTime lastModified;
+
     /**
      * We will keep track of all the selected videos even if they can't be used for subtitle merging (for better
      * diagnostics). The enum contains the reason why this video can't be used for subtitle merging.
@@ -29,27 +44,38 @@ public class Video {
 
     private String format;
 
+    /**
+     * The duration of the video in milliseconds, it's null if the video is not valid or if ffprobe doesn't know it.
+     */
+    @Nullable
+    private Long durationMillis;
+
     private List<SubtitleOption> options;
 
     public Video(
             File file,
+            long size,
+            long lastModifiedMillis,
             VideoNotValidReason notValidReason,
             String format,
+            @Nullable Long durationMillis,
             List<SubtitleOption> options
     ) {
         id = file.getAbsolutePath();
         this.file = file;
+        this.size = size;
+        this.lastModifiedMillis = lastModifiedMillis;
+        lastModified = new LocalDateTime(lastModifiedMillis);
         this.notValidReason = notValidReason;
         this.format = format;
+        this.durationMillis = durationMillis;
         this.options = options;
     }
 
-    public long getSize() {
-        return file.length();
-    }
-
-    public LocalDateTime getLastModified() {
-        return new LocalDateTime(file.lastModified());
+    public void updateSizeAndLastModified() {
+        size = file.length();
+        lastModifiedMillis = file.lastModified();
+        lastModified = new LocalDateTime(lastModifiedMillis);
     }
 
     public static Video getById(String id, List<Video> videos) {
@@ -0,0 +1,100 @@
+package kirill.subtitlemerger.gui.forms.videos.background;
+
+import kirill.subtitlemerger.logic.ffmpeg.Ffmpeg;
+import kirill.subtitlemerger.logic.subtitles.entities.SubtitleFormat;
+import kirill.subtitlemerger.logic.subtitles.entities.SubtitlesAndInput;
+import kirill.subtitlemerger.logic.utils.entities.MultiPartActionResult;
+import kirill.subtitlemerger.logic.videos.entities.BuiltInSubtitleOption;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class MergeRunnerTest {
+    private static final String TEXT = "1\n00:00:01,000 --> 00:00:02,000\nМир\n\n";
+
+    private static final String DIGEST = Ffmpeg.getSubtitleDigest(TEXT);
+
+    @Test
+    public void testDuplicateByDigest() {
+        /* The text isn't even loaded when there is a digest. */
+        assertThat(MergeRunner.isDuplicate(TEXT, DIGEST, getOption(null, DIGEST))).isTrue();
+        assertThat(MergeRunner.isDuplicate(TEXT, DIGEST, getOption(null, "other digest"))).isFalse();
+
+        /* The digest takes precedence over the text. */
+        SubtitlesAndInput sameText = getSubtitlesAndInput(TEXT, StandardCharsets.UTF_8);
+        assertThat(MergeRunner.isDuplicate(TEXT, DIGEST, getOption(sameText, "other digest"))).isFalse();
+    }
+
+    @Test
+    public void testDuplicateByText() {
+        BuiltInSubtitleOption sameText = getOptionWithText(TEXT, StandardCharsets.UTF_8);
+        assertThat(MergeRunner.isDuplicate(TEXT, DIGEST, sameText)).isTrue();
+
+        BuiltInSubtitleOption otherText = getOptionWithText("other text", StandardCharsets.UTF_8);
+        assertThat(MergeRunner.isDuplicate(TEXT, DIGEST, otherText)).isFalse();
+
+        /* The text is compared after decoding. */
+        Charset windows1251 = Charset.forName("windows-1251");
+        assertThat(MergeRunner.isDuplicate(TEXT, DIGEST, getOptionWithText(TEXT, windows1251))).isTrue();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNotLoadedWithoutDigest() {
+        MergeRunner.isDuplicate(TEXT, DIGEST, getOption(null, null));
+    }
+
+    @Test
+    public void testUnchangedVideos() {
+        assertThat(MergeRunner.getActionResult(2, 2, 0, 2, 0, 0, 0)).isEqualTo(
+                MultiPartActionResult.onlyWarning(
+                        "Merging is not needed because the selected subtitles have already been merged for all 2 videos"
+                )
+        );
+
+        /* Videos are skipped according to the merge manifest in the mode with separate subtitle files as well. */
+        assertThat(MergeRunner.getActionResult(2, 2, 0, 1, 1, 0, 0)).isEqualTo(
+                MultiPartActionResult.onlyWarning(
+                        "Merging is not needed for 1/2 videos (subtitles haven't changed since the last merge), is not "
+                                + "possible for 1/2 (no confirmation to file overwriting)"
+                )
+        );
+
+        assertThat(MergeRunner.getActionResult(4, 4, 1, 1, 0, 1, 1)).isEqualTo(
+                new MultiPartActionResult(
+                        "Merging has finished for 1/4 videos successfully",
+                        "is not needed for 1/4 (subtitles haven't changed since the last merge), is not possible for "
+                                + "1/4 (subtitles were already merged)",
+                        "failed for 1/4"
+                )
+        );
+    }
+
+    private static SubtitlesAndInput getSubtitlesAndInput(String text, Charset encoding) {
+        return SubtitlesAndInput.from(text.getBytes(encoding), encoding);
+    }
+
+    private static BuiltInSubtitleOption getOptionWithText(String text, Charset encoding) {
+        return getOption(getSubtitlesAndInput(text, encoding), null);
+    }
+
+    private static BuiltInSubtitleOption getOption(
+            @Nullable SubtitlesAndInput subtitlesAndInput,
+            @Nullable String mergedDigest
+    ) {
+        return new BuiltInSubtitleOption(
+                3,
+                subtitlesAndInput,
+                null,
+                SubtitleFormat.SUB_RIP,
+                "subrip",
+                null,
+                "merged-eng-rus",
+                false,
+                mergedDigest
+        );
+    }
+}
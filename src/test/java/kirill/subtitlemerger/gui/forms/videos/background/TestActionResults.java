@@ -365,6 +365,7 @@ public class TestActionResults {
                         11,
                         5,
                         0,
+                        0,
                         2,
                         3,
                         0
@@ -378,6 +379,7 @@ public class TestActionResults {
                         0,
                         0,
                         0,
+                        0,
                         0
                 )
         ).isEqualTo(MultiPartActionResult.onlyWarning("The task has been canceled, nothing was done"));
@@ -389,6 +391,7 @@ public class TestActionResults {
                         1,
                         0,
                         0,
+                        0,
                         0
                 )
         ).isEqualTo(MultiPartActionResult.onlySuccess("Merging has finished successfully for the video"));
@@ -400,6 +403,7 @@ public class TestActionResults {
                         2,
                         0,
                         0,
+                        0,
                         0
                 )
         ).isEqualTo(MultiPartActionResult.onlySuccess("Merging has finished successfully for all 2 videos"));
@@ -409,6 +413,7 @@ public class TestActionResults {
                         1,
                         1,
                         0,
+                        0,
                         1,
                         0,
                         0
@@ -424,6 +429,7 @@ public class TestActionResults {
                         2,
                         2,
                         0,
+                        0,
                         2,
                         0,
                         0
@@ -440,6 +446,7 @@ public class TestActionResults {
                         1,
                         0,
                         0,
+                        0,
                         1,
                         0
                 )
@@ -455,6 +462,7 @@ public class TestActionResults {
                         2,
                         0,
                         0,
+                        0,
                         2,
                         0
                 )
@@ -471,6 +479,7 @@ public class TestActionResults {
                         0,
                         0,
                         0,
+                        0,
                         1
                 )
         ).isEqualTo(MultiPartActionResult.onlyError("Merging has failed for the video"));
@@ -482,6 +491,7 @@ public class TestActionResults {
                         0,
                         0,
                         0,
+                        0,
                         2
                 )
         ).isEqualTo(MultiPartActionResult.onlyError("Merging has failed for all 2 videos"));
@@ -491,6 +501,7 @@ public class TestActionResults {
                         11,
                         9,
                         2,
+                        0,
                         3,
                         0,
                         4
@@ -509,6 +520,7 @@ public class TestActionResults {
                         9,
                         2,
                         0,
+                        0,
                         3,
                         4
                 )
@@ -525,6 +537,7 @@ public class TestActionResults {
                         11,
                         7,
                         0,
+                        0,
                         3,
                         0,
                         4
@@ -544,6 +557,7 @@ public class TestActionResults {
                         7,
                         0,
                         0,
+                        0,
                         3,
                         4
                 )
@@ -561,6 +575,7 @@ public class TestActionResults {
                         11,
                         11,
                         0,
+                        0,
                         3,
                         0,
                         8
@@ -579,6 +594,7 @@ public class TestActionResults {
                         11,
                         0,
                         0,
+                        0,
                         3,
                         8
                 )
@@ -597,6 +613,7 @@ public class TestActionResults {
                         0,
                         0,
                         0,
+                        0,
                         5
                 )
         ).isEqualTo(
@@ -0,0 +1,231 @@
+package kirill.subtitlemerger.logic.ffmpeg;
+
+import com.neovisionaries.i18n.LanguageAlpha3Code;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class FfmpegTest {
+    private static final File FFMPEG = new File("ffmpeg");
+
+    private static final File VIDEO = new File("video.mkv");
+
+    private static final File TEMP_VIDEO = new File("temp.mkv");
+
+    @Test
+    public void testInjectArguments() {
+        FfmpegInjectInfo injectInfo = getInjectInfo(false, false);
+        List<File> subtitleFiles = Arrays.asList(new File("first.srt"), new File("second.srt"));
+
+        List<String> arguments = Ffmpeg.getArgumentsInjectToFile(
+                FFMPEG,
+                injectInfo,
+                subtitleFiles,
+                TEMP_VIDEO,
+                true
+        );
+
+        /* The video already has two subtitle streams so the new ones get indices 2 and 3. */
+        assertThat(arguments).containsExactly(
+                FFMPEG.getAbsolutePath(),
+                "-y",
+                "-i",
+                VIDEO.getAbsolutePath(),
+                "-i",
+                subtitleFiles.get(0).getAbsolutePath(),
+                "-i",
+                subtitleFiles.get(1).getAbsolutePath(),
+                "-map",
+                "0",
+                "-map",
+                "1",
+                "-map",
+                "2",
+                "-c",
+                "copy",
+                "-copy_unknown",
+                "-max_interleave_delta",
+                "0",
+                "-metadata:s:s:2",
+                "language=eng",
+                "-metadata:s:s:2",
+                "title=first",
+                "-metadata:s:s:2",
+                Ffmpeg.SUBTITLE_DIGEST_TAG + "=" + Ffmpeg.getSubtitleDigest("first text"),
+                "-metadata:s:s:3",
+                "title=second",
+                "-metadata:s:s:3",
+                Ffmpeg.SUBTITLE_DIGEST_TAG + "=" + Ffmpeg.getSubtitleDigest("second text"),
+                "-nostats",
+                "-progress",
+                "pipe:1",
+                TEMP_VIDEO.getAbsolutePath()
+        ).inOrder();
+
+        List<String> argumentsWithoutProgress = Ffmpeg.getArgumentsInjectToFile(
+                FFMPEG,
+                injectInfo,
+                subtitleFiles,
+                TEMP_VIDEO,
+                false
+        );
+        assertThat(argumentsWithoutProgress).doesNotContain("-progress");
+    }
+
+    @Test
+    public void testDispositions() {
+        List<File> subtitleFiles = Arrays.asList(new File("first.srt"), new File("second.srt"));
+
+        /* Existing default streams are left as they are if none of the new streams is default. */
+        List<String> arguments = Ffmpeg.getArgumentsInjectToFile(
+                FFMPEG,
+                getInjectInfo(false, false),
+                subtitleFiles,
+                TEMP_VIDEO,
+                false
+        );
+        assertThat(getDispositionArguments(arguments)).isEmpty();
+
+        arguments = Ffmpeg.getArgumentsInjectToFile(
+                FFMPEG,
+                getInjectInfo(true, true),
+                subtitleFiles,
+                TEMP_VIDEO,
+                false
+        );
+        assertThat(getDispositionArguments(arguments)).containsExactly(
+                "-disposition:3",
+                "0",
+                "-disposition:s:2",
+                "default",
+                "-disposition:s:3",
+                "0"
+        ).inOrder();
+
+        arguments = Ffmpeg.getArgumentsInjectToFile(
+                FFMPEG,
+                getInjectInfo(false, true),
+                subtitleFiles,
+                TEMP_VIDEO,
+                false
+        );
+        assertThat(getDispositionArguments(arguments)).containsExactly(
+                "-disposition:3",
+                "0",
+                "-disposition:s:2",
+                "0",
+                "-disposition:s:3",
+                "default"
+        ).inOrder();
+    }
+
+    @Test
+    public void testReadProgress() throws IOException {
+        String output = "frame=0\n"
+                + "out_time_us=N/A\n"
+                + "total_size=N/A\n"
+                + "progress=continue\n"
+                + "out_time_us=1500000\n"
+                + "total_size=1024\n"
+                + "progress=continue\n"
+                + "out_time_us=N/A\n"
+                + "total_size=2048\n"
+                + "progress=continue\n"
+                + "out_time_us=3000000\n"
+                + "total_size=4096\n"
+                + "progress=end\n";
+
+        List<FfmpegInjectProgress> progresses = readProgress(output);
+        assertThat(progresses).hasSize(4);
+
+        /* The values are N/A at the beginning. */
+        assertProgress(progresses.get(0), 0, 0);
+        assertProgress(progresses.get(1), 1500, 1024);
+        /* The previous value should be kept. */
+        assertProgress(progresses.get(2), 1500, 2048);
+        /* The last block should be reported as well. */
+        assertProgress(progresses.get(3), 3000, 4096);
+    }
+
+    @Test
+    public void testReadProgressOutTimeMs() throws IOException {
+        /* Despite its name out_time_ms is in microseconds, newer versions of ffmpeg write both keys. */
+        List<FfmpegInjectProgress> progresses = readProgress(
+                "out_time_ms=2500000\ntotal_size=100\nprogress=continue\n"
+                        + "out_time_us=5000000\nout_time_ms=5000000\nprogress=end\n"
+        );
+
+        assertThat(progresses).hasSize(2);
+        assertProgress(progresses.get(0), 2500, 100);
+        assertProgress(progresses.get(1), 5000, 100);
+    }
+
+    @Test
+    public void testReadProgressFailingConsumer() throws IOException {
+        List<FfmpegInjectProgress> progresses = new ArrayList<>();
+        InputStream inputStream = getInputStream("progress=continue\nprogress=continue\nprogress=end\n");
+
+        Ffmpeg.readProgress(
+                inputStream,
+                progress -> {
+                    progresses.add(progress);
+                    throw new IllegalStateException();
+                }
+        );
+
+        /* The consumer shouldn't be called after the failure but the output should be read to the end. */
+        assertThat(progresses).hasSize(1);
+        assertThat(inputStream.read()).isEqualTo(-1);
+    }
+
+    private static FfmpegInjectInfo getInjectInfo(boolean firstDefault, boolean secondDefault) {
+        return new FfmpegInjectInfo(
+                Arrays.asList(
+                        new FfmpegInjectSubtitles("first text", LanguageAlpha3Code.eng, "first", firstDefault),
+                        new FfmpegInjectSubtitles("second text", null, "second", secondDefault)
+                ),
+                2,
+                Collections.singletonList(3),
+                VIDEO,
+                new File(".")
+        );
+    }
+
+    private static List<String> getDispositionArguments(List<String> arguments) {
+        List<String> result = new ArrayList<>();
+
+        for (int i = 0; i < arguments.size() - 1; i++) {
+            if (arguments.get(i).startsWith("-disposition")) {
+                result.add(arguments.get(i));
+                result.add(arguments.get(i + 1));
+            }
+        }
+
+        return result;
+    }
+
+    private static List<FfmpegInjectProgress> readProgress(String output) throws IOException {
+        List<FfmpegInjectProgress> result = new ArrayList<>();
+        Ffmpeg.readProgress(getInputStream(output), result::add);
+        return result;
+    }
+
+    private static InputStream getInputStream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void assertProgress(FfmpegInjectProgress progress, long processedMillis, long processedSize) {
+        assertThat(progress.getProcessedMillis()).isEqualTo(processedMillis);
+        assertThat(progress.getProcessedSize()).isEqualTo(processedSize);
+    }
+}
@@ -0,0 +1,56 @@
+package kirill.subtitlemerger.logic.ffmpeg;
+
+import kirill.subtitlemerger.logic.ffmpeg.json.JsonFfprobeVideoInfo;
+import kirill.subtitlemerger.logic.ffmpeg.json.JsonStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FfprobeTest {
+    @Test
+    public void testParseVideoInfo() throws IOException, FfmpegException {
+        JsonFfprobeVideoInfo videoInfo = Ffprobe.parseVideoInfo(getVideoInfoJson());
+
+        assertThat(videoInfo.getFormat().getFormatName()).isEqualTo("matroska,webm");
+        assertThat(videoInfo.getFormat().getDuration()).isEqualTo("5412.345000");
+
+        List<JsonStream> streams = videoInfo.getStreams();
+        assertThat(streams).hasSize(6);
+
+        /* Video streams don't have tags here. */
+        assertThat(streams.get(0).getCodecType()).isEqualTo("video");
+        assertThat(streams.get(0).getTags()).isNull();
+
+        assertThat(streams.get(3).getIndex()).isEqualTo(3);
+        assertThat(streams.get(3).getCodecType()).isEqualTo("subtitle");
+        assertThat(streams.get(3).getCodecName()).isEqualTo("subrip");
+        assertThat(streams.get(3).getTags()).containsEntry("language", "eng-us");
+        assertThat(streams.get(3).getTags()).containsEntry("subtitle_merger_digest", "0123456789abcdef");
+        assertThat(streams.get(3).getDisposition().getDefaultDisposition()).isEqualTo(1);
+    }
+
+    @Test
+    public void testParseIncorrectVideoInfo() {
+        /* The disposition is required. */
+        String json = "{\"streams\": [{\"index\": 0, \"codec_type\": \"subtitle\"}]}";
+
+        FfmpegException exception = assertThrows(FfmpegException.class, () -> Ffprobe.parseVideoInfo(json));
+        assertThat(exception.getCode()).isEqualTo(FfmpegException.Code.FAILED_TO_CONVERT_JSON);
+        assertThat(exception.getConsoleOutput()).isEqualTo(json);
+
+        assertThrows(FfmpegException.class, () -> Ffprobe.parseVideoInfo("not json"));
+    }
+
+    private static String getVideoInfoJson() throws IOException {
+        return IOUtils.toString(
+                FfprobeTest.class.getResourceAsStream("/logic/ffmpeg/ffprobe/video_info.json"),
+                StandardCharsets.UTF_8
+        );
+    }
+}
@@ -4,10 +4,13 @@ import kirill.subtitlemerger.logic.subtitles.entities.Subtitle;
 import kirill.subtitlemerger.logic.subtitles.entities.SubtitleFormatException;
 import kirill.subtitlemerger.logic.subtitles.entities.Subtitles;
 import org.apache.commons.io.IOUtils;
+import org.joda.time.LocalTime;
 import org.junit.Test;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 import static com.google.common.truth.Truth.assertThat;
 
@@ -180,4 +183,58 @@ public class SubRipParserTest {
     public void testIncorrect() throws SubtitleFormatException {
         SubRipParser.from("just an incorrect string");
     }
+
+    /*
+     * The same text encoded differently should be parsed the same way as a string.
+     */
+    @Test
+    public void testRawData() throws IOException, SubtitleFormatException {
+        String text = IOUtils.toString(
+                getClass().getResourceAsStream("/logic/subtitles/sub_rip_parser/tricky.srt"),
+                StandardCharsets.UTF_8
+        );
+
+        Subtitles fromString = SubRipParser.from(text);
+        Subtitles fromRawData = SubRipParser.from(text.getBytes(StandardCharsets.UTF_16LE), StandardCharsets.UTF_16LE);
+
+        assertThat(fromRawData.getSubtitles()).hasSize(fromString.getSubtitles().size());
+        for (int i = 0; i < fromString.getSubtitles().size(); i++) {
+            Subtitle expected = fromString.getSubtitles().get(i);
+            Subtitle actual = fromRawData.getSubtitles().get(i);
+
+            assertThat(actual.getFrom()).isEqualTo(expected.getFrom());
+            assertThat(actual.getTo()).isEqualTo(expected.getTo());
+            assertThat(actual.getLines()).isEqualTo(expected.getLines());
+        }
+    }
+
+    @Test
+    public void testStream() throws IOException, SubtitleFormatException {
+        List<Subtitle> subtitles = new ArrayList<>();
+        SubRipParser.parse(
+                getClass().getResourceAsStream("/logic/subtitles/sub_rip_parser/empty_trailing_lines.srt"),
+                StandardCharsets.UTF_8,
+                subtitles::add
+        );
+
+        assertThat(subtitles).hasSize(3);
+
+        Subtitle subtitle = subtitles.get(0);
+        assertThat(subtitle.getFrom()).isEqualTo(new LocalTime(0, 0, 1, 550));
+        assertThat(subtitle.getLines()).hasSize(2);
+        assertThat(subtitle.getLines().get(0)).isEqualTo("Я считаю,");
+        assertThat(subtitle.getLines().get(1)).isEqualTo("что существует женщина-киллер,");
+
+        subtitle = subtitles.get(2);
+        assertThat(subtitle.getLines()).hasSize(1);
+        assertThat(subtitle.getLines().get(0)).isEqualTo("и устранила многих влиятельных людей.");
+    }
+
+    /*
+     * The line looks like a time range but the hours are incorrect.
+     */
+    @Test(expected = SubtitleFormatException.class)
+    public void testIncorrectTime() throws SubtitleFormatException {
+        SubRipParser.from("1\n24:00:00,000 --> 24:00:01,000\ntext");
+    }
 }
@@ -5,6 +5,7 @@ import kirill.subtitlemerger.logic.subtitles.entities.Subtitles;
 import org.apache.commons.io.IOUtils;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 
@@ -51,4 +52,41 @@ public class SubRipWriterTest {
         );
         assertThat(SubRipWriter.toText(subtitles, true)).isEqualTo(expectedPlain);
     }
+
+    @Test
+    public void testStream() throws IOException, SubtitleFormatException {
+        String inputText = IOUtils.toString(
+                getClass().getResourceAsStream("/logic/subtitles/sub_rip_writer/tags.srt"),
+                StandardCharsets.UTF_8
+        );
+        Subtitles subtitles = SubRipParser.from(inputText);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        SubRipWriter.write(subtitles, false, outputStream);
+        assertThat(outputStream.toString(StandardCharsets.UTF_8)).isEqualTo(inputText);
+
+        outputStream = new ByteArrayOutputStream();
+        SubRipWriter.write(subtitles, true, outputStream);
+        assertThat(outputStream.toString(StandardCharsets.UTF_8)).isEqualTo(SubRipWriter.toText(subtitles, true));
+    }
+
+    @Test
+    public void testUnmatchedBrackets() throws SubtitleFormatException {
+        Subtitles subtitles = SubRipParser.from(
+                "1\n"
+                        + "00:00:00,000 --> 00:00:01,000\n"
+                        + "<test\n"
+                        + "<i>a</i> <> b>\n"
+                        + "{\\an8}{}c\n"
+                        + "<b>{\\i1}</b>"
+        );
+
+        assertThat(SubRipWriter.toText(subtitles, true)).isEqualTo(
+                "1" + System.lineSeparator()
+                        + "00:00:00,000 --> 00:00:01,000" + System.lineSeparator()
+                        + "<test" + System.lineSeparator()
+                        + "a " + System.lineSeparator()
+                        + "{}c"
+        );
+    }
 }
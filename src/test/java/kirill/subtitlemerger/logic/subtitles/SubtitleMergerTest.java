@@ -97,4 +97,33 @@ public class SubtitleMergerTest {
 
         assertThat(SubRipWriter.toText(merged, false)).isEqualTo(expected);
     }
+
+    /*
+     * Subtitles in upper.srt overlap each other and don't go in the order of their start times. The second one starts
+     * before the first one and the first one lasts until the end. If several subtitles from one source are displayed
+     * simultaneously, the one that goes first in the file should be used.
+     */
+    @Test
+    public void testOverlapping() throws SubtitleFormatException, InterruptedException, IOException {
+        Subtitles upperSubtitles = SubRipParser.from(
+                IOUtils.toString(
+                        getClass().getResourceAsStream("/logic/subtitles/subtitle_merger/overlapping/upper.srt"),
+                        StandardCharsets.UTF_8
+                )
+        );
+        Subtitles lowerSubtitles = SubRipParser.from(
+                IOUtils.toString(
+                        getClass().getResourceAsStream("/logic/subtitles/subtitle_merger/overlapping/lower.srt"),
+                        StandardCharsets.UTF_8
+                )
+        );
+
+        Subtitles merged = SubtitleMerger.mergeSubtitles(upperSubtitles, lowerSubtitles);
+        String expected = IOUtils.toString(
+                getClass().getResourceAsStream("/logic/subtitles/subtitle_merger/overlapping/result.srt"),
+                StandardCharsets.UTF_8
+        );
+
+        assertThat(SubRipWriter.toText(merged, false)).isEqualTo(expected);
+    }
 }
@@ -0,0 +1,140 @@
+package kirill.subtitlemerger.logic.utils.process;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class ProcessLimiterTest {
+    private static final long TIMEOUT = 10000;
+
+    @Test
+    public void testLimit() throws InterruptedException {
+        ProcessLimiter limiter = new ProcessLimiter(2);
+        limiter.acquire();
+        limiter.acquire();
+
+        Thread thread = startAcquiring(limiter, null);
+        waitUntilWaiting(thread);
+
+        limiter.release();
+        thread.join(TIMEOUT);
+        assertThat(thread.isAlive()).isFalse();
+    }
+
+    @Test
+    public void testOrder() throws InterruptedException {
+        ProcessLimiter limiter = new ProcessLimiter(1);
+        limiter.acquire();
+
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = new ArrayList<>();
+        for (String name : new String[]{"first", "second", "third"}) {
+            Thread thread = startAcquiring(limiter, () -> {
+                order.add(name);
+                limiter.release();
+            });
+            /* The next thread should arrive only after the previous one is in the queue. */
+            waitUntilWaiting(thread);
+            threads.add(thread);
+        }
+
+        limiter.release();
+        for (Thread thread : threads) {
+            thread.join(TIMEOUT);
+            assertThat(thread.isAlive()).isFalse();
+        }
+
+        assertThat(order).containsExactly("first", "second", "third").inOrder();
+    }
+
+    @Test
+    public void testInterruptWhileWaiting() throws InterruptedException {
+        ProcessLimiter limiter = new ProcessLimiter(1);
+        limiter.acquire();
+
+        AtomicBoolean interrupted = new AtomicBoolean();
+        Thread first = new Thread(() -> {
+            try {
+                limiter.acquire();
+                limiter.release();
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+        });
+        first.start();
+        waitUntilWaiting(first);
+
+        Thread second = startAcquiring(limiter, limiter::release);
+        waitUntilWaiting(second);
+
+        /* The interrupted thread shouldn't hold the queue or a slot. */
+        first.interrupt();
+        first.join(TIMEOUT);
+        assertThat(first.isAlive()).isFalse();
+        assertThat(interrupted.get()).isTrue();
+
+        limiter.release();
+        second.join(TIMEOUT);
+        assertThat(second.isAlive()).isFalse();
+
+        limiter.acquire();
+        limiter.release();
+    }
+
+    @Test
+    public void testSetLimit() throws InterruptedException {
+        ProcessLimiter limiter = new ProcessLimiter(1);
+        limiter.acquire();
+
+        Thread thread = startAcquiring(limiter, null);
+        waitUntilWaiting(thread);
+
+        limiter.setLimit(2);
+        thread.join(TIMEOUT);
+        assertThat(thread.isAlive()).isFalse();
+
+        /* Now both slots are taken. */
+        Thread other = startAcquiring(limiter, null);
+        waitUntilWaiting(other);
+
+        limiter.setLimit(3);
+        other.join(TIMEOUT);
+        assertThat(other.isAlive()).isFalse();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReleaseWithoutAcquire() {
+        new ProcessLimiter(1).release();
+    }
+
+    private static Thread startAcquiring(ProcessLimiter limiter, Runnable afterAcquire) {
+        Thread result = new Thread(() -> {
+            try {
+                limiter.acquire();
+                if (afterAcquire != null) {
+                    afterAcquire.run();
+                }
+            } catch (InterruptedException e) {
+                throw new IllegalStateException();
+            }
+        });
+        result.start();
+
+        return result;
+    }
+
+    private static void waitUntilWaiting(Thread thread) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (thread.getState() != Thread.State.WAITING) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException();
+            }
+            Thread.sleep(10);
+        }
+    }
+}
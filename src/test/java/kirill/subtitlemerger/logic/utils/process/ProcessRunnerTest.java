@@ -0,0 +1,75 @@
+package kirill.subtitlemerger.logic.utils.process;
+
+import org.apache.commons.lang3.SystemUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assume.assumeTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ProcessRunnerTest {
+    /*
+     * Much more than a pipe buffer can hold, so the process blocks unless its output is read to the end.
+     */
+    private static final List<String> LARGE_OUTPUT = Arrays.asList(
+            "sh",
+            "-c",
+            "head -c 16777216 /dev/zero; echo 'error output' >&2"
+    );
+
+    @Before
+    public void setUp() {
+        assumeTrue(SystemUtils.IS_OS_UNIX);
+    }
+
+    @Test(timeout = 30000)
+    public void testReader() throws ProcessException, InterruptedException {
+        long size = ProcessRunner.run(LARGE_OUTPUT, inputStream -> inputStream.skip(Long.MAX_VALUE));
+        assertThat(size).isEqualTo(16777216);
+
+        /* The rest of the output is skipped by the runner. */
+        int firstByte = ProcessRunner.run(LARGE_OUTPUT, inputStream -> inputStream.read());
+        assertThat(firstByte).isEqualTo(0);
+    }
+
+    @Test(timeout = 30000)
+    public void testFailingReader() {
+        ProcessException exception = assertThrows(
+                ProcessException.class,
+                () -> ProcessRunner.run(LARGE_OUTPUT, inputStream -> {
+                    inputStream.read(new byte[1024]);
+                    throw new IOException("failed to read");
+                })
+        );
+        assertThat(exception.getCode()).isEqualTo(ProcessException.Code.FAILED_TO_READ_OUTPUT);
+        assertThat(exception.getConsoleOutput()).contains("error output");
+
+        assertThrows(
+                IllegalStateException.class,
+                () -> ProcessRunner.run(LARGE_OUTPUT, inputStream -> {
+                    throw new IllegalArgumentException();
+                })
+        );
+    }
+
+    @Test(timeout = 30000)
+    public void testFailingProcess() {
+        ProcessException exception = assertThrows(
+                ProcessException.class,
+                () -> ProcessRunner.run(
+                        Arrays.asList("sh", "-c", "head -c 16777216 /dev/zero; exit 1"),
+                        inputStream -> {
+                            throw new IOException("failed to read");
+                        }
+                )
+        );
+
+        /* The exit value goes first. */
+        assertThat(exception.getCode()).isEqualTo(ProcessException.Code.EXIT_VALUE_NOT_ZERO);
+    }
+}
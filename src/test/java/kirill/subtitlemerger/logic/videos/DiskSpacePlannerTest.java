@@ -0,0 +1,145 @@
+package kirill.subtitlemerger.logic.videos;
+
+import kirill.subtitlemerger.logic.videos.entities.FileStorePlan;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class DiskSpacePlannerTest {
+    private static final File FIRST = new File("disk", "first.mkv");
+
+    private static final File SECOND = new File("disk", "second.mkv");
+
+    private static final File THIRD = new File("disk", "third.mkv");
+
+    private static final File OTHER_DISK = new File("other_disk", "other.mkv");
+
+    private static final File UNKNOWN_DISK = new File("unknown_disk", "unknown.mkv");
+
+    @Test
+    public void testPlans() {
+        List<FileStorePlan> plans = getPlanner(2).getPlans();
+        assertThat(plans).hasSize(2);
+
+        /* Two largest videos of the disk can be processed at the same time. */
+        assertThat(plans.get(0).getName()).isEqualTo("disk");
+        assertThat(plans.get(0).getVideoCount()).isEqualTo(3);
+        assertThat(plans.get(0).getRequiredSpace()).isEqualTo(70);
+        assertThat(plans.get(0).isEnoughSpace()).isFalse();
+
+        assertThat(plans.get(1).getName()).isEqualTo("other disk");
+        assertThat(plans.get(1).getRequiredSpace()).isEqualTo(100);
+        assertThat(plans.get(1).isEnoughSpace()).isTrue();
+
+        assertThat(getPlanner(1).getPlans().get(0).getRequiredSpace()).isEqualTo(40);
+        assertThat(getPlanner(1).isEnoughSpace()).isTrue();
+    }
+
+    @Test
+    public void testOtherFileStore() {
+        File diskDirectory = FIRST.getAbsoluteFile().getParentFile();
+        File otherDiskDirectory = OTHER_DISK.getAbsoluteFile().getParentFile();
+
+        /* The first video doesn't fit on its own disk so its copy goes to the other disk. */
+        DiskSpacePlanner planner = getPlanner(2, 35);
+        assertThat(planner.getTempVideoDirectory(FIRST)).isEqualTo(otherDiskDirectory);
+        assertThat(planner.getTempVideoDirectory(SECOND)).isEqualTo(diskDirectory);
+        assertThat(planner.getTempVideoDirectory(UNKNOWN_DISK))
+                .isEqualTo(UNKNOWN_DISK.getAbsoluteFile().getParentFile());
+
+        List<FileStorePlan> plans = planner.getPlans();
+        assertThat(plans.get(0).getVideoCount()).isEqualTo(2);
+        assertThat(plans.get(0).getRequiredSpace()).isEqualTo(40);
+        assertThat(plans.get(1).getVideoCount()).isEqualTo(2);
+        assertThat(plans.get(1).getRequiredSpace()).isEqualTo(140);
+        assertThat(planner.isEnoughSpace()).isFalse();
+
+        /* The first video doesn't fit anywhere so its copy stays on its own disk. */
+        planner = getPlanner(2, 5, 20);
+        assertThat(planner.getTempVideoDirectory(FIRST)).isEqualTo(diskDirectory);
+        assertThat(planner.getTempVideoDirectory(THIRD)).isEqualTo(otherDiskDirectory);
+    }
+
+    @Test
+    public void testReservations() throws InterruptedException {
+        DiskSpacePlanner planner = getPlanner(3);
+
+        assertThat(planner.tryReserve(FIRST)).isTrue();
+        assertThat(planner.tryReserve(SECOND)).isFalse();
+        assertThat(planner.tryReserve(THIRD)).isTrue();
+        assertThat(planner.tryReserve(OTHER_DISK)).isTrue();
+        assertThat(planner.tryReserve(UNKNOWN_DISK)).isTrue();
+
+        planner.release(FIRST);
+        assertThat(planner.tryReserve(SECOND)).isTrue();
+
+        /* There is not enough space even for one video but it's reserved anyway because nothing else is reserved. */
+        planner.release(SECOND);
+        planner.release(THIRD);
+        planner.release(OTHER_DISK);
+        planner.release(UNKNOWN_DISK);
+        assertThat(getPlanner(1, 10).tryReserve(FIRST)).isTrue();
+    }
+
+    @Test
+    public void testWaiting() throws InterruptedException {
+        DiskSpacePlanner planner = getPlanner(3);
+        planner.reserve(FIRST);
+
+        Thread thread = new Thread(() -> {
+            try {
+                planner.reserve(SECOND);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException();
+            }
+        });
+        thread.start();
+
+        thread.join(100);
+        assertThat(thread.isAlive()).isTrue();
+
+        planner.release(FIRST);
+        thread.join(10000);
+        assertThat(thread.isAlive()).isFalse();
+    }
+
+    private static DiskSpacePlanner getPlanner(int workerCount) {
+        return getPlanner(workerCount, 50);
+    }
+
+    private static DiskSpacePlanner getPlanner(int workerCount, long diskFreeSpace) {
+        return getPlanner(workerCount, diskFreeSpace, 100);
+    }
+
+    private static DiskSpacePlanner getPlanner(int workerCount, long diskFreeSpace, long otherDiskFreeSpace) {
+        Map<File, String> videoStoreNames = new HashMap<>();
+        videoStoreNames.put(FIRST, "disk");
+        videoStoreNames.put(SECOND, "disk");
+        videoStoreNames.put(THIRD, "disk");
+        videoStoreNames.put(OTHER_DISK, "other disk");
+
+        Map<File, Long> videoSizes = new HashMap<>();
+        videoSizes.put(FIRST, 40L);
+        videoSizes.put(SECOND, 30L);
+        videoSizes.put(THIRD, 10L);
+        videoSizes.put(OTHER_DISK, 100L);
+
+        Map<String, Long> storeFreeSpaces = new HashMap<>();
+        storeFreeSpaces.put("disk", diskFreeSpace);
+        storeFreeSpaces.put("other disk", otherDiskFreeSpace);
+
+        return new DiskSpacePlanner(
+                Arrays.asList(FIRST, SECOND, THIRD, OTHER_DISK, UNKNOWN_DISK),
+                videoStoreNames,
+                videoSizes,
+                storeFreeSpaces,
+                workerCount
+        );
+    }
+}
@@ -0,0 +1,55 @@
+package kirill.subtitlemerger.logic.videos;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class MergeManifestTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testFingerprints() {
+        String upper = MergeManifest.getInputHash(new byte[]{1, 2, 3}, StandardCharsets.UTF_8);
+        String lower = MergeManifest.getInputHash(new byte[]{4, 5, 6}, StandardCharsets.UTF_8);
+
+        assertThat(MergeManifest.getInputHash(new byte[]{1, 2, 3}, StandardCharsets.UTF_16)).isNotEqualTo(upper);
+
+        String fingerprint = MergeManifest.getFingerprint(upper, lower, false);
+        assertThat(MergeManifest.getFingerprint(upper, lower, false)).isEqualTo(fingerprint);
+        assertThat(MergeManifest.getFingerprint(lower, upper, false)).isNotEqualTo(fingerprint);
+        assertThat(MergeManifest.getFingerprint(upper, lower, true)).isNotEqualTo(fingerprint);
+    }
+
+    @Test
+    public void testChangedOutput() throws IOException {
+        File directory = temporaryFolder.newFolder("manifest");
+        File video = temporaryFolder.newFile("video.mkv");
+        FileUtils.writeStringToFile(video, "first version", StandardCharsets.UTF_8);
+
+        MergeManifest manifest = new MergeManifest(directory, 1024);
+        assertThat(manifest.getFingerprints(video)).isEmpty();
+
+        manifest.put(video, new HashSet<>(Arrays.asList("first", "second")));
+        assertThat(manifest.contains(video, "first")).isTrue();
+        assertThat(manifest.contains(video, "third")).isFalse();
+
+        /* The manifest should survive restarts. */
+        manifest = new MergeManifest(directory, 1024);
+        assertThat(manifest.getFingerprints(video)).containsExactly("first", "second");
+
+        FileUtils.writeStringToFile(video, "second, longer version", StandardCharsets.UTF_8);
+        assertThat(manifest.contains(video, "first")).isFalse();
+
+        assertThat(manifest.contains(new File(temporaryFolder.getRoot(), "missing.srt"), "first")).isFalse();
+    }
+}
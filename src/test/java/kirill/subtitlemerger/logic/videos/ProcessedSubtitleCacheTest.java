@@ -0,0 +1,48 @@
+package kirill.subtitlemerger.logic.videos;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class ProcessedSubtitleCacheTest {
+    private static final String FFMPEG = "ffmpeg_1000_2000";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testMemoryOnly() {
+        ProcessedSubtitleCache cache = new ProcessedSubtitleCache(10, null, 0);
+        cache.put("first", "subrip", FFMPEG, new byte[4]);
+        cache.put("second", "subrip", FFMPEG, new byte[4]);
+        assertThat(cache.get("first", "subrip", FFMPEG)).isNotNull();
+        assertThat(cache.get("first", "ass", FFMPEG)).isNull();
+
+        /* The second text is the least recently used one now. */
+        cache.put("third", "subrip", FFMPEG, new byte[4]);
+        assertThat(cache.get("first", "subrip", FFMPEG)).isNotNull();
+        assertThat(cache.get("second", "subrip", FFMPEG)).isNull();
+        assertThat(cache.get("third", "subrip", FFMPEG)).isNotNull();
+    }
+
+    @Test
+    public void testDisk() throws IOException {
+        File directory = temporaryFolder.newFolder("cache");
+
+        ProcessedSubtitleCache cache = new ProcessedSubtitleCache(1024, directory, 1024);
+        cache.put("text", "subrip", FFMPEG, new byte[]{1, 2, 3});
+
+        /* The cache should survive restarts, and the entries that don't fit in memory are still read from the disk. */
+        cache = new ProcessedSubtitleCache(2, directory, 1024);
+        assertThat(cache.get("text", "subrip", FFMPEG)).isEqualTo(new byte[]{1, 2, 3});
+        assertThat(cache.get("text", "ass", FFMPEG)).isNull();
+
+        /* Another version of ffmpeg may process the text differently. */
+        assertThat(cache.get("text", "subrip", "ffmpeg_1001_2000")).isNull();
+    }
+}
@@ -0,0 +1,64 @@
+package kirill.subtitlemerger.logic.videos;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class SubtitleCacheTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testChangedVideo() throws IOException {
+        File directory = temporaryFolder.newFolder("cache");
+        File video = temporaryFolder.newFile("video.mkv");
+        FileUtils.writeStringToFile(video, "first version", StandardCharsets.UTF_8);
+
+        SubtitleCache cache = new SubtitleCache(directory, 1024);
+        cache.put(video, video.length(), video.lastModified(), 2, new byte[]{1, 2, 3});
+        assertThat(cache.get(video, video.length(), video.lastModified(), 2)).isEqualTo(new byte[]{1, 2, 3});
+        assertThat(cache.get(video, video.length(), video.lastModified(), 3)).isNull();
+
+        /* The cache should survive restarts. */
+        cache = new SubtitleCache(directory, 1024);
+        assertThat(cache.get(video, video.length(), video.lastModified(), 2)).isEqualTo(new byte[]{1, 2, 3});
+
+        FileUtils.writeStringToFile(video, "second, longer version", StandardCharsets.UTF_8);
+        assertThat(cache.get(video, video.length(), video.lastModified(), 2)).isNull();
+
+        cache.put(video, video.length(), video.lastModified(), 2, new byte[]{4});
+        cache.invalidate(video);
+        assertThat(cache.get(video, video.length(), video.lastModified(), 2)).isNull();
+        assertThat(directory.listFiles()).isEmpty();
+    }
+
+    @Test
+    public void testEviction() throws IOException {
+        File directory = temporaryFolder.newFolder("cache");
+        File firstVideo = temporaryFolder.newFile("first.mkv");
+        File secondVideo = temporaryFolder.newFile("second.mkv");
+
+        SubtitleCache cache = new SubtitleCache(directory, 10);
+        cache.put(firstVideo, firstVideo.length(), firstVideo.lastModified(), 0, new byte[4]);
+        cache.put(firstVideo, firstVideo.length(), firstVideo.lastModified(), 1, new byte[4]);
+        assertThat(cache.get(firstVideo, firstVideo.length(), firstVideo.lastModified(), 0)).isNotNull();
+
+        /* The stream with the index 1 is the least recently used one now. */
+        cache.put(secondVideo, secondVideo.length(), secondVideo.lastModified(), 0, new byte[4]);
+        assertThat(cache.get(firstVideo, firstVideo.length(), firstVideo.lastModified(), 0)).isNotNull();
+        assertThat(cache.get(firstVideo, firstVideo.length(), firstVideo.lastModified(), 1)).isNull();
+        assertThat(cache.get(secondVideo, secondVideo.length(), secondVideo.lastModified(), 0)).isNotNull();
+
+        /* Subtitles that don't fit are not stored at all. */
+        cache.put(secondVideo, secondVideo.length(), secondVideo.lastModified(), 1, new byte[11]);
+        assertThat(cache.get(secondVideo, secondVideo.length(), secondVideo.lastModified(), 1)).isNull();
+        assertThat(cache.get(secondVideo, secondVideo.length(), secondVideo.lastModified(), 0)).isNotNull();
+    }
+}
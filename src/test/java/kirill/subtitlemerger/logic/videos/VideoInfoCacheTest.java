@@ -0,0 +1,75 @@
+package kirill.subtitlemerger.logic.videos;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class VideoInfoCacheTest {
+    private static final File VIDEO = new File("video.mkv");
+
+    private static final File OTHER_VIDEO = new File("other.mkv");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        File directory = temporaryFolder.newFolder("cache");
+
+        VideoInfoCache cache = new VideoInfoCache(directory, 1024);
+        assertThat(cache.get(VIDEO, 100, 1000)).isNull();
+
+        cache.put(VIDEO, 100, 1000, "{\"streams\": []}");
+        cache.put(OTHER_VIDEO, 200, 2000, "{\"format\": {}}");
+        assertThat(cache.get(VIDEO, 100, 1000)).isEqualTo("{\"streams\": []}");
+
+        /* The entries should survive restarts. */
+        cache = new VideoInfoCache(directory, 1024);
+        assertThat(cache.get(VIDEO, 100, 1000)).isEqualTo("{\"streams\": []}");
+        assertThat(cache.get(OTHER_VIDEO, 200, 2000)).isEqualTo("{\"format\": {}}");
+
+        cache.invalidate(VIDEO);
+        assertThat(cache.get(VIDEO, 100, 1000)).isNull();
+        assertThat(cache.get(OTHER_VIDEO, 200, 2000)).isEqualTo("{\"format\": {}}");
+    }
+
+    @Test
+    public void testChangedVideo() throws IOException {
+        File directory = temporaryFolder.newFolder("cache");
+
+        VideoInfoCache cache = new VideoInfoCache(directory, 1024);
+        cache.put(VIDEO, 100, 1000, "first");
+        cache.put(OTHER_VIDEO, 100, 1000, "other");
+
+        assertThat(cache.get(VIDEO, 101, 1000)).isNull();
+        assertThat(cache.get(VIDEO, 100, 1001)).isNull();
+
+        /* The entry for the previous version of the video should be replaced. */
+        cache.put(VIDEO, 101, 1001, "second");
+        assertThat(cache.get(VIDEO, 101, 1001)).isEqualTo("second");
+        assertThat(cache.get(VIDEO, 100, 1000)).isNull();
+        assertThat(directory.list()).hasLength(2);
+
+        /* Other videos shouldn't be affected. */
+        assertThat(cache.get(OTHER_VIDEO, 100, 1000)).isEqualTo("other");
+
+        cache = new VideoInfoCache(directory, 1024);
+        cache.put(VIDEO, 102, 1002, "third");
+        assertThat(cache.get(VIDEO, 101, 1001)).isNull();
+        assertThat(directory.list()).hasLength(2);
+    }
+
+    @Test
+    public void testDisabled() throws IOException {
+        File directory = temporaryFolder.newFolder("cache");
+
+        VideoInfoCache cache = new VideoInfoCache(directory, 0);
+        cache.put(VIDEO, 100, 1000, "first");
+        assertThat(cache.get(VIDEO, 100, 1000)).isNull();
+    }
+}
@@ -0,0 +1,58 @@
+package kirill.subtitlemerger.logic.videos;
+
+import com.neovisionaries.i18n.LanguageAlpha3Code;
+import kirill.subtitlemerger.logic.ffmpeg.FfmpegException;
+import kirill.subtitlemerger.logic.ffmpeg.Ffprobe;
+import kirill.subtitlemerger.logic.subtitles.entities.SubtitleFormat;
+import kirill.subtitlemerger.logic.videos.entities.BuiltInSubtitleOption;
+import kirill.subtitlemerger.logic.videos.entities.SubtitleOptionNotValidReason;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class VideosTest {
+    @Test
+    public void testSubtitleOptions() throws IOException, FfmpegException {
+        String json = IOUtils.toString(
+                getClass().getResourceAsStream("/logic/ffmpeg/ffprobe/video_info.json"),
+                StandardCharsets.UTF_8
+        );
+
+        List<BuiltInSubtitleOption> options = Videos.getSubtitleOptions(Ffprobe.parseVideoInfo(json));
+
+        /* Only subtitle streams become options. */
+        assertThat(options).hasSize(4);
+
+        BuiltInSubtitleOption regular = options.get(0);
+        assertThat(regular.getFfmpegIndex()).isEqualTo(2);
+        assertThat(regular.getLanguage()).isEqualTo(LanguageAlpha3Code.rus);
+        assertThat(regular.isMerged()).isFalse();
+        /* The digest tag is ignored for the streams that are not merged. */
+        assertThat(regular.getMergedDigest()).isNull();
+
+        BuiltInSubtitleOption merged = options.get(1);
+        assertThat(merged.getFfmpegIndex()).isEqualTo(3);
+        assertThat(merged.getFormat()).isEqualTo(SubtitleFormat.SUB_RIP);
+        assertThat(merged.getLanguage()).isEqualTo(LanguageAlpha3Code.eng);
+        assertThat(merged.isDefaultDisposition()).isTrue();
+        assertThat(merged.isMerged()).isTrue();
+        /* The tag is written in lower case here, the digest should be found regardless of the case. */
+        assertThat(merged.getMergedDigest()).isEqualTo("0123456789abcdef");
+
+        /* Merged by an older version of the application, there is no digest. */
+        BuiltInSubtitleOption mergedWithoutDigest = options.get(2);
+        assertThat(mergedWithoutDigest.isMerged()).isTrue();
+        assertThat(mergedWithoutDigest.isMergedInPlainText()).isTrue();
+        assertThat(mergedWithoutDigest.getMergedDigest()).isNull();
+
+        BuiltInSubtitleOption notAllowed = options.get(3);
+        assertThat(notAllowed.getNotValidReason()).isEqualTo(SubtitleOptionNotValidReason.NOT_ALLOWED_CODEC);
+        assertThat(notAllowed.getLanguage()).isNull();
+        assertThat(notAllowed.getMergedDigest()).isNull();
+    }
+}